@@ -3,6 +3,7 @@ package com.olekhv.taskmanager.advice;
 import com.olekhv.taskmanager.exception.NoPermissionException;
 import com.olekhv.taskmanager.exception.TaskNotFoundException;
 import com.olekhv.taskmanager.exception.TokenNotFoundException;
+import com.olekhv.taskmanager.exception.TooManyRequestsException;
 import com.olekhv.taskmanager.exception.UserAlreadyExistsException;
 import jakarta.persistence.NonUniqueResultException;
 import jakarta.servlet.ServletException;
@@ -69,6 +70,12 @@ public class ApplicationExceptionHandler {
         return ex.getMessage();
     }
 
+    @ResponseStatus(HttpStatus.TOO_MANY_REQUESTS)
+    @ExceptionHandler(TooManyRequestsException.class)
+    public String handleTooManyRequestsException(TooManyRequestsException ex){
+        return ex.getMessage();
+    }
+
     @ResponseStatus(HttpStatus.INTERNAL_SERVER_ERROR)
     @ExceptionHandler(StackOverflowError.class)
     public String handleStackOverflowError(StackOverflowError ex){
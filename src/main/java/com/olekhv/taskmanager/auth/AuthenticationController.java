@@ -1,5 +1,6 @@
 package com.olekhv.taskmanager.auth;
 
+import com.olekhv.taskmanager.config.PasswordHashingExecutor;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.PostMapping;
@@ -7,20 +8,23 @@ import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
+import java.util.concurrent.CompletableFuture;
+
 @RestController
 @RequestMapping("/api/v1/auth")
 @RequiredArgsConstructor
 public class AuthenticationController {
 
     private final AuthenticationService authenticationService;
+    private final PasswordHashingExecutor passwordHashingExecutor;
 
     @PostMapping("/register")
-    public ResponseEntity<AuthenticationResponse> register(@RequestBody RegisterRequest request){
-        return ResponseEntity.ok(authenticationService.register(request));
+    public CompletableFuture<ResponseEntity<AuthenticationResponse>> register(@RequestBody RegisterRequest request){
+        return passwordHashingExecutor.submit(() -> ResponseEntity.ok(authenticationService.register(request)));
     }
 
     @PostMapping("/login")
-    public ResponseEntity<AuthenticationResponse> login(@RequestBody LoginRequest request){
-        return ResponseEntity.ok(authenticationService.login(request));
+    public CompletableFuture<ResponseEntity<AuthenticationResponse>> login(@RequestBody LoginRequest request){
+        return passwordHashingExecutor.submit(() -> ResponseEntity.ok(authenticationService.login(request)));
     }
 }
@@ -1,12 +1,12 @@
 package com.olekhv.taskmanager.auth;
 
 import com.olekhv.taskmanager.config.JwtService;
-import com.olekhv.taskmanager.token.Token;
-import com.olekhv.taskmanager.token.TokenRepository;
-import com.olekhv.taskmanager.token.TokenType;
+import com.olekhv.taskmanager.config.MetricsConfiguration;
+import com.olekhv.taskmanager.token.TokenRevocationStrategy;
 import com.olekhv.taskmanager.user.Role;
 import com.olekhv.taskmanager.user.User;
 import com.olekhv.taskmanager.user.UserRepository;
+import io.micrometer.core.annotation.Timed;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.security.authentication.AuthenticationManager;
@@ -16,9 +16,8 @@ import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 
-import java.util.List;
-
 @Service
+@Timed(MetricsConfiguration.SERVICE_TIMER)
 @Slf4j
 @RequiredArgsConstructor
 public class AuthenticationService {
@@ -27,7 +26,7 @@ public class AuthenticationService {
     private final PasswordEncoder passwordEncoder;
     private final JwtService jwtService;
     private final AuthenticationManager authenticationManager;
-    private final TokenRepository tokenRepository;
+    private final TokenRevocationStrategy tokenRevocationStrategy;
 
     public AuthenticationResponse register(RegisterRequest request) {
         String requestEmail = request.getEmail();
@@ -42,8 +41,7 @@ public class AuthenticationService {
                 .role(Role.USER)
                 .build();
         User savedUser = userRepository.save(user);
-        String jwt = jwtService.generateToken(user);
-        saveUserToken(savedUser, jwt);
+        String jwt = issueToken(savedUser);
         return AuthenticationResponse.builder()
                 .token(jwt)
                 .build();
@@ -65,36 +63,17 @@ public class AuthenticationService {
                 .orElseThrow(
                         () -> new UsernameNotFoundException("User with email: " + " does not exists")
                 );
-        String jwt = jwtService.generateToken(user);
-        revokeAllUserTokens(user);
-        saveUserToken(user, jwt);
+        // Revoked first, so the new token is not revoked with the old ones
+        tokenRevocationStrategy.revokeAll(user);
+        String jwt = issueToken(user);
         return AuthenticationResponse.builder()
                 .token(jwt)
                 .build();
     }
 
-    private void saveUserToken(User user, String jwt) {
-        Token token = Token.builder()
-                .user(user)
-                .token(jwt)
-                .tokenType(TokenType.BEARER)
-                .expired(false)
-                .revoked(false)
-                .build();
-        tokenRepository.save(token);
-    }
-
-    private void revokeAllUserTokens(User user){
-        List<Token> validUserTokens = tokenRepository.findAllValidTokenByUserId(user.getId());
-        if(validUserTokens.isEmpty()){
-            return;
-        }
-        validUserTokens.forEach(
-                token -> {
-                    token.setExpired(true);
-                    token.setRevoked(true);
-                }
-        );
-        tokenRepository.saveAll(validUserTokens);
+    private String issueToken(User user) {
+        String jwt = jwtService.generateToken(tokenRevocationStrategy.claimsFor(user), user);
+        tokenRevocationStrategy.tokenIssued(user, jwt);
+        return jwt;
     }
 }
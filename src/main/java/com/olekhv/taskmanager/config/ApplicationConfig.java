@@ -1,13 +1,18 @@
 package com.olekhv.taskmanager.config;
 
+import com.olekhv.taskmanager.user.User;
+import com.olekhv.taskmanager.user.UserPrincipal;
+import com.olekhv.taskmanager.user.UserPrincipalCache;
 import com.olekhv.taskmanager.user.UserRepository;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.AuthenticationProvider;
 import org.springframework.security.authentication.dao.DaoAuthenticationProvider;
 import org.springframework.security.config.annotation.authentication.configuration.AuthenticationConfiguration;
+import org.springframework.security.core.userdetails.UserDetailsPasswordService;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
@@ -17,13 +22,25 @@ import org.springframework.security.crypto.password.PasswordEncoder;
 @RequiredArgsConstructor
 public class ApplicationConfig {
     private final UserRepository userRepository;
+    private final UserPrincipalCache userPrincipalCache;
 
+    @Value("${application.security.password-hashing.strength:10}")
+    private int passwordStrength;
+
+    /* Principals of JWT authenticated requests, the token was already
+    checked, so a cached principal is enough */
     @Bean
     public UserDetailsService userDetailsService(){
-        return username -> userRepository.findByEmail(username)
-                .orElseThrow(
-                        () -> new UsernameNotFoundException("User with email " + username + " not found")
-                );
+        return username -> {
+            UserPrincipal principal = userPrincipalCache.get(username,
+                    email -> userRepository.findByEmail(email)
+                            .map(UserPrincipal::from)
+                            .orElse(null));
+            if (principal == null) {
+                throw new UsernameNotFoundException("User with email " + username + " not found");
+            }
+            return principal;
+        };
     }
 
     @Bean
@@ -31,16 +48,37 @@ public class ApplicationConfig {
         return config.getAuthenticationManager();
     }
 
+    /* Logins read the user uncached, so a password changed or reset on
+    another instance is never checked against the old hash */
     @Bean
     public AuthenticationProvider authenticationProvider(){
         DaoAuthenticationProvider authenticationProvider = new DaoAuthenticationProvider();
-        authenticationProvider.setUserDetailsService(userDetailsService());
+        authenticationProvider.setUserDetailsService(username -> userRepository.findByEmail(username)
+                .map(UserPrincipal::from)
+                .orElseThrow(() -> new UsernameNotFoundException("User with email " + username + " not found")));
         authenticationProvider.setPasswordEncoder(passwordEncoder());
+        authenticationProvider.setUserDetailsPasswordService(userDetailsPasswordService());
         return authenticationProvider;
     }
 
+    /* Called by DaoAuthenticationProvider after a successful login when
+    the stored hash has a lower strength than the configured one, so
+    passwords move to the new strength as users log in */
+    @Bean
+    public UserDetailsPasswordService userDetailsPasswordService() {
+        return (userDetails, newPassword) -> {
+            User user = userRepository.findByEmail(userDetails.getUsername()).orElseThrow(
+                    () -> new UsernameNotFoundException("User with email " + userDetails.getUsername() + " not found")
+            );
+            user.setPassword(newPassword);
+            userRepository.save(user);
+            userPrincipalCache.invalidate(user.getEmail());
+            return UserPrincipal.from(user);
+        };
+    }
+
     @Bean
     public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+        return new BCryptPasswordEncoder(passwordStrength);
     }
 }
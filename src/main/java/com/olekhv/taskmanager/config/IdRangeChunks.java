@@ -0,0 +1,26 @@
+package com.olekhv.taskmanager.config;
+
+/* Runs a bulk statement over ids (0, maxId] in ranges of chunkSize ids.
+Statements are transactional repository methods, so every range commits
+on its own and locks are held only for one range. Returns the total
+of rows the statement reported */
+public final class IdRangeChunks {
+
+    private IdRangeChunks() {
+    }
+
+    public static int run(long maxId, int chunkSize, RangeStatement statement) {
+        int total = 0;
+        for (long fromId = 0; fromId < maxId; fromId += chunkSize) {
+            long toId = Math.min(fromId + chunkSize, maxId);
+            total += statement.execute(fromId, toId);
+        }
+        return total;
+    }
+
+    // Rows with fromId < id <= toId
+    @FunctionalInterface
+    public interface RangeStatement {
+        int execute(long fromId, long toId);
+    }
+}
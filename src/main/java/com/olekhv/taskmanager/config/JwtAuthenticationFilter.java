@@ -1,15 +1,17 @@
 package com.olekhv.taskmanager.config;
 
-import com.olekhv.taskmanager.token.TokenRepository;
+import com.olekhv.taskmanager.token.TokenDigest;
+import com.olekhv.taskmanager.token.TokenRevocationStrategy;
+import com.olekhv.taskmanager.user.UserPrincipal;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import lombok.NonNull;
-import lombok.RequiredArgsConstructor;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.context.SecurityContextHolder;
-import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.web.authentication.WebAuthenticationDetailsSource;
 import org.springframework.stereotype.Component;
@@ -17,14 +19,29 @@ import org.springframework.web.filter.OncePerRequestFilter;
 
 import java.io.IOException;
 
+/* Steps of the authentication are timed separately under auth.filter,
+so token parsing can be told apart from user and token lookups */
 @Component
-@RequiredArgsConstructor
 public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
-    private final TokenRepository tokenRepository;
+    private final TokenRevocationStrategy tokenRevocationStrategy;
     private final JwtService jwtService;
     private final UserDetailsService userDetailsService;
+    private final Timer parseTime;
+    private final Timer userLookupTime;
+    private final Timer tokenCheckTime;
 
+    public JwtAuthenticationFilter(TokenRevocationStrategy tokenRevocationStrategy,
+                                   JwtService jwtService,
+                                   UserDetailsService userDetailsService,
+                                   MeterRegistry meterRegistry) {
+        this.tokenRevocationStrategy = tokenRevocationStrategy;
+        this.jwtService = jwtService;
+        this.userDetailsService = userDetailsService;
+        this.parseTime = stepTimer(meterRegistry, "jwt.parse");
+        this.userLookupTime = stepTimer(meterRegistry, "user.lookup");
+        this.tokenCheckTime = stepTimer(meterRegistry, "token.check");
+    }
 
     @Override
     protected void doFilterInternal(@NonNull HttpServletRequest request,
@@ -39,13 +56,15 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
             return;
         }
         jwt = authHeader.substring(7);
-        userEmail = jwtService.extractUsername(jwt);
+        String digest = TokenDigest.sha256(jwt);
+        VerifiedClaims claims = parseTime.record(() -> jwtService.verify(jwt, digest));
+        userEmail = claims.getSubject();
         if (userEmail != null && SecurityContextHolder.getContext().getAuthentication() == null) {
-            UserDetails userDetails = this.userDetailsService.loadUserByUsername(userEmail);
-            boolean isTokenValid = tokenRepository.findByToken(jwt)
-                    .map(t -> !t.isExpired() && !t.isRevoked())
-                    .orElse(false);
-            if(jwtService.isTokenValid(jwt, userDetails) && isTokenValid){
+            UserPrincipal userDetails = userLookupTime.record(
+                    () -> (UserPrincipal) this.userDetailsService.loadUserByUsername(userEmail));
+            boolean isTokenValid = tokenCheckTime.record(
+                    () -> tokenRevocationStrategy.isActive(jwt, digest, claims, userDetails));
+            if(jwtService.isTokenValid(claims, userDetails) && isTokenValid){
                 UsernamePasswordAuthenticationToken authenticationToken = new UsernamePasswordAuthenticationToken(
                         userDetails,
                         null,
@@ -57,4 +76,11 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         }
         filterChain.doFilter(request, response);
     }
+
+    private static Timer stepTimer(MeterRegistry meterRegistry, String step) {
+        return Timer.builder("auth.filter")
+                .description("Time spent in a step of bearer token authentication")
+                .tag("step", step)
+                .register(meterRegistry);
+    }
 }
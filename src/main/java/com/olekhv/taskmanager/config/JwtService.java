@@ -1,18 +1,27 @@
 package com.olekhv.taskmanager.config;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.olekhv.taskmanager.token.TokenDigest;
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.ExpiredJwtException;
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.SignatureAlgorithm;
 import io.jsonwebtoken.io.Decoders;
 import io.jsonwebtoken.security.Keys;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Service;
 
 import java.security.Key;
+import java.time.Duration;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Optional;
 import java.util.function.Function;
 
 @Service
@@ -21,13 +30,52 @@ public class JwtService {
 
     private static final String SECRET_KEY = "4D635166546A576E5A7234753778214125442A472D4B6150645267556B587032";
 
+    // Signature of cached claims is not verified again during this time
+    private static final Duration CLAIMS_CACHE_TTL = Duration.ofMinutes(5);
+
+    private final Key signInKey = buildSignInKey();
+    private final JwtParser jwtParser = Jwts.parserBuilder()
+            .setSigningKey(signInKey)
+            .build();
+    private final Cache<String, VerifiedClaims> claimsCache;
+
+    public JwtService(@Value("${application.security.jwt.claims-cache-size:10000}") long claimsCacheSize) {
+        this.claimsCache = Caffeine.newBuilder()
+                .maximumSize(claimsCacheSize)
+                .expireAfterWrite(CLAIMS_CACHE_TTL)
+                .build();
+    }
+
+    public VerifiedClaims verify(String token) {
+        return verify(token, TokenDigest.sha256(token));
+    }
+
+    /* Verifies signature once per token, following calls are served
+    from the claims cache. Hashing the token costs about as much as
+    the signature check, so the digest should be computed only once
+    per request and shared with the other token caches */
+    public VerifiedClaims verify(String token, String digest) {
+        return claimsCache.get(digest, key -> new VerifiedClaims(parseClaims(token)));
+    }
+
     public String extractUsername(String token) {
-        return extractClaim(token, Claims::getSubject);
+        return verify(token).getSubject();
     }
 
     public <T> T extractClaim(String token, Function<Claims, T> claimsResolver){
-        final Claims claims = extractAllClaims(token);
-        return claimsResolver.apply(claims);
+        return verify(token).get(claimsResolver);
+    }
+
+    /* Expiration of a token signed by this service, also when it has
+    passed already. Empty for tokens that can't pass verification */
+    public Optional<Date> extractExpiration(String token) {
+        try {
+            return Optional.ofNullable(parseClaims(token).getExpiration());
+        } catch (ExpiredJwtException ex) {
+            return Optional.ofNullable(ex.getClaims().getExpiration());
+        } catch (JwtException | IllegalArgumentException ex) {
+            return Optional.empty();
+        }
     }
 
     public String generateToken(UserDetails userDetails){
@@ -42,33 +90,26 @@ public class JwtService {
                 .setSubject(userDetails.getUsername())
                 .setIssuedAt(new Date(System.currentTimeMillis()))
                 .setExpiration(new Date(System.currentTimeMillis() + 1000 * 60 * 24))
-                .signWith(getSignInKey(), SignatureAlgorithm.HS256)
+                .signWith(signInKey, SignatureAlgorithm.HS256)
                 .compact();
     }
 
-    private Claims extractAllClaims(String token) {
-        return Jwts.parserBuilder()
-                .setSigningKey(getSignInKey())
-                .build()
+    Claims parseClaims(String token) {
+        return jwtParser
                 .parseClaimsJws(token)
                 .getBody();
     }
 
-    private Key getSignInKey() {
+    private static Key buildSignInKey() {
         byte[] keyBytes = Decoders.BASE64URL.decode(SECRET_KEY);
         return Keys.hmacShaKeyFor(keyBytes);
     }
 
     public boolean isTokenValid(String token, UserDetails userDetails) {
-        final String username = extractUsername(token);
-        return username.equals(userDetails.getUsername()) && !isTokenExpired(token);
-    }
-
-    private boolean isTokenExpired(String token) {
-        return extractExpiration(token).before(new Date());
+        return isTokenValid(verify(token), userDetails);
     }
 
-    private Date extractExpiration(String token) {
-        return extractClaim(token, Claims::getExpiration);
+    public boolean isTokenValid(VerifiedClaims claims, UserDetails userDetails) {
+        return claims.getSubject().equals(userDetails.getUsername()) && !claims.isExpired();
     }
 }
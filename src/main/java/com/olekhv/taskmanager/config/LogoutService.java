@@ -1,8 +1,6 @@
 package com.olekhv.taskmanager.config;
 
-import com.olekhv.taskmanager.exception.TokenNotFoundException;
-import com.olekhv.taskmanager.token.Token;
-import com.olekhv.taskmanager.token.TokenRepository;
+import com.olekhv.taskmanager.token.TokenRevocationStrategy;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
@@ -14,7 +12,8 @@ import org.springframework.stereotype.Service;
 @Service
 @RequiredArgsConstructor
 public class LogoutService implements LogoutHandler {
-    private final TokenRepository tokenRepository;
+    private final TokenRevocationStrategy tokenRevocationStrategy;
+    private final JwtService jwtService;
 
     @Override
     public void logout(HttpServletRequest request,
@@ -26,15 +25,7 @@ public class LogoutService implements LogoutHandler {
             return;
         }
         jwt = authHeader.substring(7);
-        Token storedToken = tokenRepository.findByToken(jwt)
-                .orElseThrow(
-                        () -> new TokenNotFoundException("Token " + jwt + " does not exists")
-                );
-        if(storedToken!=null){
-            storedToken.setExpired(true);
-            storedToken.setRevoked(true);
-            tokenRepository.save(storedToken);
-            SecurityContextHolder.clearContext();
-        }
+        tokenRevocationStrategy.revoke(jwt, jwtService.verify(jwt));
+        SecurityContextHolder.clearContext();
     }
 }
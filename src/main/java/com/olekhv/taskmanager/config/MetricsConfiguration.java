@@ -0,0 +1,20 @@
+package com.olekhv.taskmanager.config;
+
+import io.micrometer.core.aop.TimedAspect;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/* Public methods of classes annotated with @Timed(SERVICE_TIMER) are timed
+with class and method tags. HTTP requests, repository methods and the
+Hikari pool are measured by Spring Boot itself, see management.metrics */
+@Configuration
+public class MetricsConfiguration {
+
+    public static final String SERVICE_TIMER = "service.invocations";
+
+    @Bean
+    public TimedAspect timedAspect(MeterRegistry meterRegistry) {
+        return new TimedAspect(meterRegistry);
+    }
+}
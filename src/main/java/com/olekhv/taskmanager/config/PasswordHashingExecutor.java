@@ -0,0 +1,56 @@
+package com.olekhv.taskmanager.config;
+
+import com.olekhv.taskmanager.exception.TooManyRequestsException;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/* Runs operations that hash or check passwords off the servlet threads.
+Both the pool and its queue are bounded, when they are full new work is
+refused at once with TooManyRequestsException instead of piling up behind
+BCrypt, so request threads stay free for every other endpoint */
+@Component
+public class PasswordHashingExecutor {
+
+    private final ExecutorService executor;
+
+    public PasswordHashingExecutor(MeterRegistry meterRegistry,
+                                   @Value("${application.security.password-hashing.threads:0}") int threads,
+                                   @Value("${application.security.password-hashing.queue-capacity:64}") int queueCapacity) {
+        // BCrypt is CPU bound, more threads than cores only add latency
+        int poolSize = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(poolSize,
+                poolSize,
+                0L,
+                TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                new CustomizableThreadFactory("password-hashing-"),
+                new ThreadPoolExecutor.AbortPolicy());
+        this.executor = ExecutorServiceMetrics.monitor(meterRegistry, pool, "password.hashing");
+    }
+
+    public <T> CompletableFuture<T> submit(Supplier<T> operation) {
+        try {
+            return CompletableFuture.supplyAsync(operation, executor);
+        } catch (RejectedExecutionException e) {
+            throw new TooManyRequestsException("Too many requests, try again later");
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+}
@@ -0,0 +1,46 @@
+package com.olekhv.taskmanager.config;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+
+/* Tables that no entity maps, for the startup migrations
+that work on them with plain SQL */
+@Component
+@RequiredArgsConstructor
+public class SchemaTables {
+
+    static final String RETIRED_SUFFIX = "_migrated";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public boolean exists(String tableName) {
+        Boolean exists = jdbcTemplate.execute((ConnectionCallback<Boolean>) connection -> {
+            DatabaseMetaData metaData = connection.getMetaData();
+            try (ResultSet tables = metaData.getTables(connection.getCatalog(), null, tableName, new String[]{"TABLE"})) {
+                return tables.next();
+            }
+        });
+        return Boolean.TRUE.equals(exists);
+    }
+
+    public boolean hasColumn(String tableName, String columnName) {
+        Boolean exists = jdbcTemplate.execute((ConnectionCallback<Boolean>) connection -> {
+            DatabaseMetaData metaData = connection.getMetaData();
+            try (ResultSet columns = metaData.getColumns(connection.getCatalog(), null, tableName, columnName)) {
+                return columns.next();
+            }
+        });
+        return Boolean.TRUE.equals(exists);
+    }
+
+    /* Renames a legacy table once its rows are migrated. The rows are
+    kept, but the migration doesn't find the table on the next start */
+    public void retire(String tableName) {
+        jdbcTemplate.execute("ALTER TABLE " + tableName + " RENAME TO " + tableName + RETIRED_SUFFIX);
+    }
+}
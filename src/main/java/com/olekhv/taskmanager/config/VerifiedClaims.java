@@ -0,0 +1,32 @@
+package com.olekhv.taskmanager.config;
+
+import io.jsonwebtoken.Claims;
+
+import java.util.Date;
+import java.util.function.Function;
+
+/* Claims of a token whose signature has already been verified */
+public class VerifiedClaims {
+
+    private final Claims claims;
+
+    public VerifiedClaims(Claims claims) {
+        this.claims = claims;
+    }
+
+    public String getSubject() {
+        return claims.getSubject();
+    }
+
+    public Date getExpiration() {
+        return claims.getExpiration();
+    }
+
+    public <T> T get(Function<Claims, T> claimsResolver) {
+        return claimsResolver.apply(claims);
+    }
+
+    public boolean isExpired() {
+        return claims.getExpiration().before(new Date());
+    }
+}
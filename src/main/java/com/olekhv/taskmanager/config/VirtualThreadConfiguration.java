@@ -0,0 +1,87 @@
+package com.olekhv.taskmanager.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.boot.web.embedded.tomcat.TomcatProtocolHandlerCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.core.task.support.TaskExecutorAdapter;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/* Opt-in, needs Java 21 at runtime (mvn -Pjava21). Tomcat handles every
+request on its own virtual thread and MVC async work (exports, password
+hashing continuations) runs on virtual threads as well. The hashing pool
+itself stays on platform threads, BCrypt is CPU bound.
+
+With virtual threads the Tomcat pool no longer limits concurrency, the
+Hikari pool does. Waiting requests queue up for a connection, so the pool
+size and the connection timeout are checked against the limits below on
+start instead of being left at values tuned for a platform thread pool */
+@Configuration
+@ConditionalOnProperty(name = "application.threads.virtual.enabled", havingValue = "true")
+@Slf4j
+public class VirtualThreadConfiguration {
+
+    private final ExecutorService virtualThreadExecutor = newVirtualThreadPerTaskExecutor();
+
+    @Value("${application.threads.virtual.max-pool-size:20}")
+    private int maxPoolSize;
+
+    @Value("${application.threads.virtual.max-connection-timeout:5000}")
+    private long maxConnectionTimeoutMillis;
+
+    @Bean
+    public TomcatProtocolHandlerCustomizer<?> virtualThreadProtocolHandlerCustomizer() {
+        return protocolHandler -> protocolHandler.setExecutor(virtualThreadExecutor);
+    }
+
+    // Replaces the pool Spring MVC uses for async requests
+    @Bean(name = "applicationTaskExecutor")
+    public AsyncTaskExecutor applicationTaskExecutor() {
+        return new TaskExecutorAdapter(virtualThreadExecutor);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void checkConnectionPool(ApplicationReadyEvent event) {
+        DataSource dataSource = event.getApplicationContext().getBean(DataSource.class);
+        if (!(dataSource instanceof HikariDataSource hikari)) {
+            return;
+        }
+
+        /* Every connection is a MySQL thread, a few per core is enough to keep
+        the database busy. More connections only move the queue into MySQL */
+        if (hikari.getMaximumPoolSize() > maxPoolSize) {
+            throw new IllegalStateException("spring.datasource.hikari.maximum-pool-size is "
+                    + hikari.getMaximumPoolSize() + ", virtual threads allow at most " + maxPoolSize);
+        }
+
+        /* Nothing else bounds the number of waiting requests, a long timeout
+        lets them pile up for the whole timeout before anything fails */
+        if (hikari.getConnectionTimeout() > maxConnectionTimeoutMillis) {
+            throw new IllegalStateException("spring.datasource.hikari.connection-timeout is "
+                    + hikari.getConnectionTimeout() + " ms, virtual threads allow at most "
+                    + maxConnectionTimeoutMillis + " ms");
+        }
+
+        log.info("Requests run on virtual threads with {} database connections, {} wait at most",
+                hikari.getMaximumPoolSize(), Duration.ofMillis(hikari.getConnectionTimeout()));
+    }
+
+    // Looked up reflectively, so the rest of the code base still compiles for Java 17
+    private static ExecutorService newVirtualThreadPerTaskExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Virtual threads need Java 21, running on " + Runtime.version(), e);
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package com.olekhv.taskmanager.config;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordingStream;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.List;
+
+/* Reports virtual threads that block while pinned to their carrier,
+mostly blocking calls made inside of synchronized sections. Such a thread
+holds a carrier for the whole call, with few carriers that stalls every
+request. Each event is counted and logged with the frame that blocked.
+Add -Djdk.tracePinnedThreads=full for complete stacks on stdout */
+@Component
+@ConditionalOnProperty(name = "application.threads.virtual.enabled", havingValue = "true")
+@Slf4j
+public class VirtualThreadPinningMonitor {
+
+    private static final String PINNED_EVENT = "jdk.VirtualThreadPinned";
+    private static final int LOGGED_FRAMES = 5;
+
+    private final RecordingStream recording;
+
+    public VirtualThreadPinningMonitor(MeterRegistry meterRegistry,
+                                       @Value("${application.threads.virtual.pinned-threshold:20}") long thresholdMillis) {
+        Counter pinned = Counter.builder("threads.virtual.pinned")
+                .description("Virtual threads blocked while pinned to a carrier thread")
+                .register(meterRegistry);
+
+        recording = new RecordingStream();
+        recording.enable(PINNED_EVENT)
+                .withThreshold(Duration.ofMillis(thresholdMillis))
+                .withStackTrace();
+        recording.onEvent(PINNED_EVENT, event -> {
+            pinned.increment();
+            log.warn("Virtual thread pinned for {} ms at {}", event.getDuration().toMillis(), frames(event));
+        });
+        recording.startAsync();
+    }
+
+    @PreDestroy
+    public void close() {
+        recording.close();
+    }
+
+    private static String frames(RecordedEvent event) {
+        if (event.getStackTrace() == null) {
+            return "unknown location";
+        }
+        List<RecordedFrame> frames = event.getStackTrace().getFrames();
+        StringBuilder location = new StringBuilder();
+        for (RecordedFrame frame : frames.subList(0, Math.min(LOGGED_FRAMES, frames.size()))) {
+            location.append(System.lineSeparator())
+                    .append("\tat ")
+                    .append(frame.getMethod().getType().getName())
+                    .append('.')
+                    .append(frame.getMethod().getName())
+                    .append(':')
+                    .append(frame.getLineNumber());
+        }
+        return location.toString();
+    }
+}
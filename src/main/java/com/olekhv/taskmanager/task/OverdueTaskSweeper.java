@@ -0,0 +1,66 @@
+package com.olekhv.taskmanager.task;
+
+import com.olekhv.taskmanager.config.IdRangeChunks;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+
+/* Marks expired tasks as overdue in the background, so listing
+endpoints don't have to write anything. Deadlines are normally
+handled by DeadlineScheduler, the sweep catches everything
+that is outside of its window or was missed on restart */
+@Component
+@Slf4j
+public class OverdueTaskSweeper {
+
+    private final TaskRepository taskRepository;
+    private final Timer sweepTimer;
+    private final Counter markedRows;
+    private final DistributionSummary markedRowsPerSweep;
+
+    @Value("${application.tasks.overdue-sweep.chunk-size:1000}")
+    private int chunkSize;
+
+    public OverdueTaskSweeper(TaskRepository taskRepository,
+                              MeterRegistry meterRegistry) {
+        this.taskRepository = taskRepository;
+        this.sweepTimer = Timer.builder("tasks.overdue.sweep")
+                .description("Time spent marking expired tasks as overdue")
+                .register(meterRegistry);
+        this.markedRows = Counter.builder("tasks.overdue.sweep.rows")
+                .description("Tasks marked as overdue by the sweep")
+                .register(meterRegistry);
+        this.markedRowsPerSweep = DistributionSummary.builder("tasks.overdue.sweep.rows.per.sweep")
+                .description("Tasks marked as overdue by a single sweep")
+                .register(meterRegistry);
+    }
+
+    @Scheduled(fixedDelayString = "${application.tasks.overdue-sweep.interval:60000}")
+    public void sweep() {
+        sweepTimer.record(() -> markOverdueTasks(LocalDateTime.now()));
+    }
+
+    /* Chunked, so a sweep after a long downtime doesn't
+    lock every expired task in one transaction */
+    public int markOverdueTasks(LocalDateTime now) {
+        int markedTotal = IdRangeChunks.run(taskRepository.findMaxId().orElse(0L), chunkSize,
+                (fromId, toId) -> taskRepository.markOverdueInRange(fromId, toId, now,
+                        TaskProgress.OVERDUE, TaskOrdering.progressBits(TaskProgress.OVERDUE),
+                        TaskProgress.FINAL_PROGRESSES));
+
+        markedRows.increment(markedTotal);
+        markedRowsPerSweep.record(markedTotal);
+
+        if (markedTotal > 0) {
+            log.info("Marked {} tasks as overdue", markedTotal);
+        }
+        return markedTotal;
+    }
+}
@@ -1,6 +1,8 @@
 package com.olekhv.taskmanager.task;
 
 import com.fasterxml.jackson.annotation.JsonBackReference;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.olekhv.taskmanager.team.Team;
 import com.olekhv.taskmanager.user.User;
 import jakarta.persistence.*;
 import lombok.*;
@@ -8,14 +10,22 @@ import lombok.*;
 import java.time.LocalDateTime;
 
 @Entity
+@Table(indexes = {
+        @Index(name = "idx_task_owner_sort_key", columnList = "owner_id, sort_key"),
+        @Index(name = "idx_task_team_owner_sort_key", columnList = "team_id, owner_id, sort_key")
+})
 @Getter
 @Setter
 @NoArgsConstructor
 @AllArgsConstructor
 @Builder
 public class Task {
+    // Ids are reserved in blocks, so inserts can be batched
+    public static final int ID_ALLOCATION_SIZE = 50;
+
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "task_seq")
+    @SequenceGenerator(name = "task_seq", sequenceName = "task_seq", allocationSize = ID_ALLOCATION_SIZE)
     @Column(name = "id", nullable = false)
     private Long id;
     private String name;
@@ -29,4 +39,21 @@ public class Task {
     private TaskProgress progress;
     @ManyToOne
     private User owner;
+
+    // Set for tasks given to a member of a team
+    @JsonIgnore
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "team_id")
+    private Team team;
+
+    // Derived from the fields above, see TaskOrdering
+    @JsonIgnore
+    @Column(name = "sort_key")
+    private Long sortKey;
+
+    @PrePersist
+    @PreUpdate
+    void updateSortKey() {
+        sortKey = TaskOrdering.sortKey(this);
+    }
 }
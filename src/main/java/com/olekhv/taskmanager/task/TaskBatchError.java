@@ -0,0 +1,14 @@
+package com.olekhv.taskmanager.task;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class TaskBatchError {
+    // Position of the task in the request array
+    private int index;
+    private String message;
+}
@@ -0,0 +1,16 @@
+package com.olekhv.taskmanager.task;
+
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+public class TaskBatchResult {
+    private int created;
+    private List<TaskBatchError> errors = new ArrayList<>();
+
+    public void addError(int index, String message) {
+        errors.add(new TaskBatchError(index, message));
+    }
+}
@@ -0,0 +1,175 @@
+package com.olekhv.taskmanager.task;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.olekhv.taskmanager.task.deadline.DeadlineScheduler;
+import com.olekhv.taskmanager.user.User;
+import com.olekhv.taskmanager.user.UserPrincipal;
+import com.olekhv.taskmanager.user.UserRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+/* Creates many tasks from one request. The body is read element by element,
+so it is never held in memory as a whole, and tasks are inserted in chunks,
+each chunk in its own transaction. A broken task only fails itself,
+tasks of a chunk that fails in the database are retried one by one */
+@Service
+@Slf4j
+public class TaskBatchService {
+
+    private final TaskRepository taskRepository;
+    private final UserRepository userRepository;
+    private final DeadlineScheduler deadlineScheduler;
+    private final ObjectMapper objectMapper;
+    private final EntityManager entityManager;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${application.tasks.batch.chunk-size:500}")
+    private int chunkSize;
+
+    @Value("${application.tasks.batch.max-size:10000}")
+    private int maxSize;
+
+    public TaskBatchService(TaskRepository taskRepository,
+                            UserRepository userRepository,
+                            DeadlineScheduler deadlineScheduler,
+                            ObjectMapper objectMapper,
+                            EntityManager entityManager,
+                            PlatformTransactionManager transactionManager) {
+        this.taskRepository = taskRepository;
+        this.userRepository = userRepository;
+        this.deadlineScheduler = deadlineScheduler;
+        this.objectMapper = objectMapper;
+        this.entityManager = entityManager;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    public TaskBatchResult addTasks(UserPrincipal authUser,
+                                    InputStream body) throws IOException {
+        User owner = userRepository.getReferenceById(authUser.getId());
+        TaskBatchResult result = new TaskBatchResult();
+
+        List<Task> tasks = new ArrayList<>(chunkSize);
+        List<Integer> indexes = new ArrayList<>(chunkSize);
+        int index = 0;
+
+        try (JsonParser parser = objectMapper.getFactory().createParser(body)) {
+            if (parser.nextToken() != JsonToken.START_ARRAY) {
+                throw new IllegalArgumentException("Tasks must be sent as JSON array");
+            }
+
+            for (JsonToken token = parser.nextToken(); token != JsonToken.END_ARRAY; token = parser.nextToken()) {
+                if (token == null) {
+                    result.addError(index, "Tasks array is not closed");
+                    break;
+                }
+                if (index >= maxSize) {
+                    result.addError(index, "Only " + maxSize + " tasks can be added at once, the rest was skipped");
+                    break;
+                }
+
+                // Each element is read on its own, so a bad one doesn't break the stream
+                JsonNode node = parser.readValueAsTree();
+                try {
+                    Task task = readTask(node, owner);
+                    tasks.add(task);
+                    indexes.add(index);
+                } catch (JsonProcessingException ex) {
+                    result.addError(index, "Task can't be read: " + ex.getOriginalMessage());
+                } catch (IllegalArgumentException ex) {
+                    result.addError(index, ex.getMessage());
+                }
+                index++;
+
+                if (tasks.size() == chunkSize) {
+                    saveChunk(tasks, indexes, result);
+                    tasks = new ArrayList<>(chunkSize);
+                    indexes = new ArrayList<>(chunkSize);
+                }
+            }
+        } catch (JsonProcessingException ex) {
+            result.addError(index, "Body is malformed, tasks from this position were not read");
+        }
+
+        saveChunk(tasks, indexes, result);
+        return result;
+    }
+
+    private Task readTask(JsonNode node, User owner) throws JsonProcessingException {
+        Task task = objectMapper.treeToValue(node, Task.class);
+
+        if (task == null || task.getName() == null || task.getName().isBlank()) {
+            throw new IllegalArgumentException("Name is required");
+        }
+        if (task.getFromDateTime() != null && task.getToDateTime() != null
+                && task.getFromDateTime().isAfter(task.getToDateTime())) {
+            throw new IllegalArgumentException("Start can't be after deadline");
+        }
+
+        task.setId(null);
+        task.setOwner(owner);
+        return task;
+    }
+
+    private void saveChunk(List<Task> tasks,
+                           List<Integer> indexes,
+                           TaskBatchResult result) {
+        if (tasks.isEmpty()) {
+            return;
+        }
+
+        try {
+            save(tasks);
+        } catch (DataAccessException | PersistenceException ex) {
+            log.warn("Chunk of {} tasks was not saved, saving them one by one", tasks.size(), ex);
+            saveOneByOne(tasks, indexes, result);
+            return;
+        }
+
+        result.setCreated(result.getCreated() + tasks.size());
+        tasks.forEach(deadlineScheduler::schedule);
+    }
+
+    /* Finds the tasks that broke the chunk, so only they are reported.
+    Rare, so a transaction per task is fine here */
+    private void saveOneByOne(List<Task> tasks,
+                              List<Integer> indexes,
+                              TaskBatchResult result) {
+        for (int i = 0; i < tasks.size(); i++) {
+            Task task = tasks.get(i);
+            // Id from the rolled back chunk would turn the insert into a merge
+            task.setId(null);
+            try {
+                save(List.of(task));
+            } catch (DataAccessException | PersistenceException ex) {
+                result.addError(indexes.get(i), "Task was not saved");
+                continue;
+            }
+            result.setCreated(result.getCreated() + 1);
+            deadlineScheduler.schedule(task);
+        }
+    }
+
+    private void save(List<Task> tasks) {
+        transactionTemplate.executeWithoutResult(status -> {
+            taskRepository.saveAll(tasks);
+            // Saved tasks are not needed anymore, context stays small between chunks
+            entityManager.flush();
+            entityManager.clear();
+        });
+    }
+}
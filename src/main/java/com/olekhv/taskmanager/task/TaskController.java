@@ -1,10 +1,16 @@
 package com.olekhv.taskmanager.task;
 
+import com.olekhv.taskmanager.user.UserPrincipal;
+import jakarta.servlet.http.HttpServletRequest;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
-import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
 import java.util.List;
 
 @RestController
@@ -13,45 +19,65 @@ import java.util.List;
 public class TaskController {
 
     private final TaskService taskService;
+    private final TaskBatchService taskBatchService;
+    private final TaskExportService taskExportService;
 
     @PostMapping
     public ResponseEntity<String> addTaskForSingleUser(@RequestBody Task task,
-                                                       @AuthenticationPrincipal UserDetails userDetails){
-        taskService.addTaskForSingleUser(userDetails.getUsername(), task);
+                                                       @AuthenticationPrincipal UserPrincipal principal){
+        taskService.addTaskForSingleUser(principal, task);
         return ResponseEntity.ok("Task was added successfully");
     }
 
+    // Body is read as a stream, so it is not bound with @RequestBody
+    @PostMapping(value = "/batch", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<TaskBatchResult> addTasks(HttpServletRequest request,
+                                                    @AuthenticationPrincipal UserPrincipal principal) throws IOException {
+        return ResponseEntity.ok(taskBatchService.addTasks(principal, request.getInputStream()));
+    }
+
     @PutMapping("/edit")
     public ResponseEntity<String> editTask(@RequestParam Long id,
                                            @RequestBody Task task,
-                                           @AuthenticationPrincipal UserDetails userDetails){
-        taskService.editTask(id, task, userDetails.getUsername());
+                                           @AuthenticationPrincipal UserPrincipal principal){
+        taskService.editTask(id, task, principal);
         return ResponseEntity.ok("Task was edited successfully");
     }
 
     @PutMapping("/edit/progress")
     public ResponseEntity<String> changeTaskProgress(@RequestParam Long taskId,
                                                      @RequestParam TaskProgress taskProgress,
-                                                     @AuthenticationPrincipal UserDetails userDetails){
-        taskService.changeTaskProgress(taskId, taskProgress, userDetails.getUsername());
+                                                     @AuthenticationPrincipal UserPrincipal principal){
+        taskService.changeTaskProgress(taskId, taskProgress, principal);
         return ResponseEntity.ok("Progress was changed successfully");
     }
 
     @DeleteMapping
     public ResponseEntity<String> deleteTask(@RequestParam Long id,
-                                             @AuthenticationPrincipal UserDetails userDetails){
-        taskService.deleteTask(id, userDetails.getUsername());
+                                             @AuthenticationPrincipal UserPrincipal principal){
+        taskService.deleteTask(id, principal);
         return ResponseEntity.ok("Task was deleted successfully");
     }
 
     @GetMapping
-    public ResponseEntity<List<Task>> listTasksOfSpecificUser(@RequestParam String userEmail,
-                                                              @AuthenticationPrincipal UserDetails userDetails){
-        return ResponseEntity.ok(taskService.listTasksOfSpecificUser(userEmail, userDetails.getUsername()));
+    public ResponseEntity<List<TaskSummaryDTO>> listTasksOfSpecificUser(@RequestParam String userEmail,
+                                                                        @AuthenticationPrincipal UserPrincipal principal){
+        return ResponseEntity.ok(taskService.listTasksOfSpecificUser(userEmail, principal));
     }
 
     @GetMapping("/all")
-    public ResponseEntity<List<Task>> listAllTasks(@AuthenticationPrincipal UserDetails userDetails){
-        return ResponseEntity.ok(taskService.listAllTasks(userDetails.getUsername()));
+    public ResponseEntity<TaskPage> listAllTasks(@RequestParam(required = false) String cursor,
+                                                 @RequestParam(defaultValue = "50") int size,
+                                                 @AuthenticationPrincipal UserPrincipal principal){
+        return ResponseEntity.ok(taskService.listAllTasks(principal, cursor, size));
+    }
+
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportTasks(@RequestParam(defaultValue = "NDJSON") TaskExportFormat format,
+                                                             @AuthenticationPrincipal UserPrincipal principal){
+        return ResponseEntity.ok()
+                .contentType(format.getMediaType())
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"tasks." + format.getExtension() + "\"")
+                .body(taskExportService.exportTasks(principal.getId(), format));
     }
 }
@@ -0,0 +1,45 @@
+package com.olekhv.taskmanager.task;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/* Position of the last task of a page in the
+order used by TaskRepository.PAGE_ORDER */
+@Getter
+@AllArgsConstructor
+public class TaskCursor {
+
+    private final long sortKey;
+    private final Long id;
+
+    public static TaskCursor of(TaskSummaryDTO task) {
+        long sortKey = task.getSortKey() != null
+                ? task.getSortKey()
+                : TaskOrdering.sortKey(task.getPriority(), task.getToDateTime(), task.getFromDateTime(), task.getProgress());
+        return new TaskCursor(sortKey, task.getId());
+    }
+
+    public String encode() {
+        String value = sortKey + ":" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static TaskCursor decode(String cursor) {
+        try {
+            String value = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            String[] parts = value.split(":");
+            if (parts.length != 2) {
+                throw new IllegalArgumentException("Cursor is invalid");
+            }
+            return new TaskCursor(
+                    Long.parseLong(parts[0]),
+                    Long.parseLong(parts[1])
+            );
+        } catch (IllegalArgumentException ex) {
+            throw new IllegalArgumentException("Cursor is invalid");
+        }
+    }
+}
@@ -0,0 +1,9 @@
+package com.olekhv.taskmanager.task;
+
+import java.time.LocalDateTime;
+
+public interface TaskDeadline {
+    Long getId();
+
+    LocalDateTime getToDateTime();
+}
@@ -0,0 +1,139 @@
+package com.olekhv.taskmanager.task;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManager;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Iterator;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+/* Writes tasks straight from a database cursor to the response.
+Every task is detached right after it is written, so memory
+doesn't depend on how many tasks are exported */
+@Service
+public class TaskExportService {
+
+    private static final String CSV_HEADER = "id,name,description,fromDateTime,toDateTime,priority,progress";
+
+    private final TaskRepository taskRepository;
+    private final ObjectMapper objectMapper;
+    private final EntityManager entityManager;
+    private final TransactionTemplate transactionTemplate;
+
+    public TaskExportService(TaskRepository taskRepository,
+                             ObjectMapper objectMapper,
+                             EntityManager entityManager,
+                             PlatformTransactionManager transactionManager) {
+        this.taskRepository = taskRepository;
+        this.objectMapper = objectMapper;
+        this.entityManager = entityManager;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setReadOnly(true);
+    }
+
+    public StreamingResponseBody exportTasks(Long ownerId,
+                                             TaskExportFormat format) {
+        return output -> export(() -> taskRepository.streamByOwnerId(ownerId), format, output);
+    }
+
+    public StreamingResponseBody exportTeamTasks(Long teamId,
+                                                 Long ownerId,
+                                                 TaskExportFormat format) {
+        return output -> export(() -> taskRepository.streamTeamTasksByOwnerId(teamId, ownerId), format, output);
+    }
+
+    private void export(Supplier<Stream<Task>> query,
+                        TaskExportFormat format,
+                        OutputStream output) throws IOException {
+        try {
+            // Stream has to be consumed while its transaction is open
+            transactionTemplate.executeWithoutResult(status -> {
+                try (Stream<Task> tasks = query.get()) {
+                    switch (format) {
+                        case NDJSON -> writeNdjson(tasks.iterator(), output);
+                        case CSV -> writeCsv(tasks.iterator(), output);
+                    }
+                } catch (IOException ex) {
+                    throw new UncheckedIOException(ex);
+                }
+            });
+        } catch (UncheckedIOException ex) {
+            throw ex.getCause();
+        }
+    }
+
+    private void writeNdjson(Iterator<Task> tasks, OutputStream output) throws IOException {
+        JsonGenerator generator = objectMapper.getFactory().createGenerator(output);
+        generator.setRootValueSeparator(null);
+
+        while (tasks.hasNext()) {
+            Task task = tasks.next();
+            generator.writeStartObject();
+            generator.writeNumberField("id", task.getId());
+            generator.writeStringField("name", task.getName());
+            generator.writeStringField("description", task.getDescription());
+            generator.writeStringField("fromDateTime", format(task.getFromDateTime()));
+            generator.writeStringField("toDateTime", format(task.getToDateTime()));
+            generator.writeStringField("priority", task.getPriority() == null ? null : task.getPriority().name());
+            generator.writeStringField("progress", task.getProgress() == null ? null : task.getProgress().name());
+            generator.writeEndObject();
+            generator.writeRaw('\n');
+            entityManager.detach(task);
+        }
+        generator.flush();
+    }
+
+    private void writeCsv(Iterator<Task> tasks, OutputStream output) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(output, StandardCharsets.UTF_8));
+        writer.write(CSV_HEADER);
+        writer.write('\n');
+
+        while (tasks.hasNext()) {
+            Task task = tasks.next();
+            writer.write(String.valueOf(task.getId()));
+            writer.write(',');
+            writer.write(csv(task.getName()));
+            writer.write(',');
+            writer.write(csv(task.getDescription()));
+            writer.write(',');
+            writer.write(csv(format(task.getFromDateTime())));
+            writer.write(',');
+            writer.write(csv(format(task.getToDateTime())));
+            writer.write(',');
+            writer.write(task.getPriority() == null ? "" : task.getPriority().name());
+            writer.write(',');
+            writer.write(task.getProgress() == null ? "" : task.getProgress().name());
+            writer.write('\n');
+            entityManager.detach(task);
+        }
+        writer.flush();
+    }
+
+    private static String format(LocalDateTime dateTime) {
+        return dateTime == null ? null : dateTime.toString();
+    }
+
+    // Quotes values that contain separators, quotes inside are doubled
+    static String csv(String value) {
+        if (value == null) {
+            return "";
+        }
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+}
@@ -0,0 +1,153 @@
+package com.olekhv.taskmanager.task;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+
+/* Single place that defines how tasks are ordered: higher priority first,
+then earlier deadline, earlier start and lower progress. The whole order
+is packed into one non-negative long, so ascending order of the key is the
+order of the tasks both in memory and in the sort_key column:
+
+  bit 62-61  inverted priority (HIGHEST = 0, LOW or none = 3)
+  bit 60-32  deadline, minutes since 2000-01-01 (none = max)
+  bit 31-3   start, minutes since 2000-01-01 (none = max)
+  bit 2-0    progress ordinal (none = 0) */
+public final class TaskOrdering {
+
+    public static final int PROGRESS_BITS = 3;
+    public static final long PROGRESS_RADIX = 1L << PROGRESS_BITS;
+
+    private static final int TIME_BITS = 29;
+    private static final long TIME_MAX = (1L << TIME_BITS) - 1;
+    private static final int START_SHIFT = PROGRESS_BITS;
+    private static final int DEADLINE_SHIFT = START_SHIFT + TIME_BITS;
+    private static final int PRIORITY_SHIFT = DEADLINE_SHIFT + TIME_BITS;
+    private static final int MAX_PRIORITY = TaskPriority.values().length - 1;
+
+    private static final long EPOCH_MINUTE = LocalDateTime.of(2000, 1, 1, 0, 0)
+            .toEpochSecond(ZoneOffset.UTC) / 60;
+
+    // Below this size insertion sort is faster than merging
+    private static final int INSERTION_SORT_THRESHOLD = 32;
+
+    private TaskOrdering() {
+    }
+
+    public static long sortKey(Task task) {
+        return sortKey(task.getPriority(), task.getToDateTime(), task.getFromDateTime(), task.getProgress());
+    }
+
+    public static long sortKey(TaskPriority priority,
+                               LocalDateTime deadline,
+                               LocalDateTime start,
+                               TaskProgress progress) {
+        long priorityBits = MAX_PRIORITY - (priority == null ? 0 : priority.ordinal());
+        return priorityBits << PRIORITY_SHIFT
+                | minutes(deadline) << DEADLINE_SHIFT
+                | minutes(start) << START_SHIFT
+                | progressBits(progress);
+    }
+
+    public static long progressBits(TaskProgress progress) {
+        return progress == null ? 0 : progress.ordinal();
+    }
+
+    /* Sorts the list in place. Keys are computed once per task and
+    sorted together with the tasks, no comparator or boxing is involved.
+    Equal keys keep their original order */
+    public static void sort(List<Task> tasks) {
+        int size = tasks.size();
+        if (size < 2) {
+            return;
+        }
+
+        long[] keys = new long[size];
+        Task[] items = new Task[size];
+        for (int i = 0; i < size; i++) {
+            Task task = tasks.get(i);
+            items[i] = task;
+            keys[i] = sortKey(task);
+        }
+
+        sort(keys, items);
+
+        for (int i = 0; i < size; i++) {
+            tasks.set(i, items[i]);
+        }
+    }
+
+    /* Stable bottom-up merge sort of keys with tasks moved along */
+    static void sort(long[] keys, Task[] items) {
+        int size = keys.length;
+        for (int from = 0; from < size; from += INSERTION_SORT_THRESHOLD) {
+            insertionSort(keys, items, from, Math.min(from + INSERTION_SORT_THRESHOLD, size));
+        }
+        if (size <= INSERTION_SORT_THRESHOLD) {
+            return;
+        }
+
+        long[] srcKeys = keys;
+        Task[] srcItems = items;
+        long[] dstKeys = new long[size];
+        Task[] dstItems = new Task[size];
+
+        for (int width = INSERTION_SORT_THRESHOLD; width < size; width <<= 1) {
+            for (int from = 0; from < size; from += width << 1) {
+                int middle = Math.min(from + width, size);
+                int to = Math.min(from + (width << 1), size);
+                merge(srcKeys, srcItems, dstKeys, dstItems, from, middle, to);
+            }
+            long[] swapKeys = srcKeys;
+            srcKeys = dstKeys;
+            dstKeys = swapKeys;
+            Task[] swapItems = srcItems;
+            srcItems = dstItems;
+            dstItems = swapItems;
+        }
+
+        if (srcKeys != keys) {
+            System.arraycopy(srcKeys, 0, keys, 0, size);
+            System.arraycopy(srcItems, 0, items, 0, size);
+        }
+    }
+
+    private static void insertionSort(long[] keys, Task[] items, int from, int to) {
+        for (int i = from + 1; i < to; i++) {
+            long key = keys[i];
+            Task item = items[i];
+            int j = i - 1;
+            while (j >= from && keys[j] > key) {
+                keys[j + 1] = keys[j];
+                items[j + 1] = items[j];
+                j--;
+            }
+            keys[j + 1] = key;
+            items[j + 1] = item;
+        }
+    }
+
+    private static void merge(long[] srcKeys, Task[] srcItems,
+                              long[] dstKeys, Task[] dstItems,
+                              int from, int middle, int to) {
+        int left = from;
+        int right = middle;
+        for (int i = from; i < to; i++) {
+            if (right >= to || (left < middle && srcKeys[left] <= srcKeys[right])) {
+                dstKeys[i] = srcKeys[left];
+                dstItems[i] = srcItems[left++];
+            } else {
+                dstKeys[i] = srcKeys[right];
+                dstItems[i] = srcItems[right++];
+            }
+        }
+    }
+
+    private static long minutes(LocalDateTime dateTime) {
+        if (dateTime == null) {
+            return TIME_MAX;
+        }
+        long minutes = dateTime.toEpochSecond(ZoneOffset.UTC) / 60 - EPOCH_MINUTE;
+        return Math.max(0, Math.min(minutes, TIME_MAX - 1));
+    }
+}
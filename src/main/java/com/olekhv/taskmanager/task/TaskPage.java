@@ -0,0 +1,33 @@
+package com.olekhv.taskmanager.task;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class TaskPage {
+    public static final int MAX_SIZE = 100;
+
+    private List<TaskSummaryDTO> tasks;
+    private String nextCursor;
+
+    /* Rows are expected to be fetched with pageSize + 1 limit,
+    extra row only signals that next page exists */
+    public static TaskPage of(List<TaskSummaryDTO> rows, int pageSize) {
+        if (rows.size() <= pageSize) {
+            return new TaskPage(rows, null);
+        }
+        List<TaskSummaryDTO> tasks = rows.subList(0, pageSize);
+        return new TaskPage(tasks, TaskCursor.of(tasks.get(pageSize - 1)).encode());
+    }
+
+    public static int pageSize(int requestedSize) {
+        return Math.min(Math.max(requestedSize, 1), MAX_SIZE);
+    }
+}
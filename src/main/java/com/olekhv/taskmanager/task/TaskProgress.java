@@ -1,5 +1,9 @@
 package com.olekhv.taskmanager.task;
 
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Set;
+
 public enum TaskProgress {
     TODO("TODO"),
     PLANNING("Planning"),
@@ -8,6 +12,10 @@ public enum TaskProgress {
     OVERDUE("Overdue"),
     CLOSED("Closed");
 
+    // Tasks in these states are never marked as overdue
+    public static final Set<TaskProgress> FINAL_PROGRESSES =
+            Collections.unmodifiableSet(EnumSet.of(FINISHED, OVERDUE, CLOSED));
+
     private String name;
 
     TaskProgress(String name) {
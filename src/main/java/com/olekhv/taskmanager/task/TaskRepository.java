@@ -1,8 +1,128 @@
 package com.olekhv.taskmanager.task;
 
+import jakarta.persistence.QueryHint;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.HibernateHints.HINT_FETCH_SIZE;
+import static org.hibernate.jpa.HibernateHints.HINT_READ_ONLY;
 
 @Repository
 public interface TaskRepository extends JpaRepository<Task, Long> {
+    // sort_key already encodes the whole order, see TaskOrdering
+    String PAGE_ORDER = " ORDER BY t.sortKey ASC, t.id ASC";
+
+    /* Keyset continuation: keeps tasks that are placed
+    strictly after the cursor in PAGE_ORDER */
+    String AFTER_CURSOR = " AND (t.sortKey > :sortKey OR (t.sortKey = :sortKey AND t.id > :id))";
+
+    // Replaces progress bits of sort_key when progress is changed by a bulk update
+    String OVERDUE_SORT_KEY = "t.sortKey - MOD(t.sortKey, " + TaskOrdering.PROGRESS_RADIX + ") + :overdueBits";
+
+    String SUMMARY = "SELECT new com.olekhv.taskmanager.task.TaskSummaryDTO(" +
+            "t.id, t.name, t.description, t.fromDateTime, t.toDateTime, t.priority, t.progress, t.sortKey, " +
+            "o.id, o.email) ";
+
+    String TASKS_OF_OWNER = "FROM Task t JOIN t.owner o WHERE o.id = :ownerId";
+
+    String TEAM_TASKS_OF_OWNER = "FROM Task t JOIN t.owner o WHERE t.team.id = :teamId AND o.id = :ownerId";
+
+    @Query(SUMMARY + TASKS_OF_OWNER + PAGE_ORDER)
+    List<TaskSummaryDTO> findSummariesByOwnerId(@Param("ownerId") Long ownerId);
+
+    @Query(SUMMARY + TASKS_OF_OWNER + PAGE_ORDER)
+    List<TaskSummaryDTO> findPageByOwnerId(@Param("ownerId") Long ownerId,
+                                           Pageable pageable);
+
+    @Query(SUMMARY + TASKS_OF_OWNER + AFTER_CURSOR + PAGE_ORDER)
+    List<TaskSummaryDTO> findPageByOwnerIdAfter(@Param("ownerId") Long ownerId,
+                                                @Param("sortKey") long sortKey,
+                                                @Param("id") Long id,
+                                                Pageable pageable);
+
+    @Query(SUMMARY + TEAM_TASKS_OF_OWNER + PAGE_ORDER)
+    List<TaskSummaryDTO> findTeamPageByOwnerId(@Param("teamId") Long teamId,
+                                               @Param("ownerId") Long ownerId,
+                                               Pageable pageable);
+
+    @Query(SUMMARY + TEAM_TASKS_OF_OWNER + AFTER_CURSOR + PAGE_ORDER)
+    List<TaskSummaryDTO> findTeamPageByOwnerIdAfter(@Param("teamId") Long teamId,
+                                                    @Param("ownerId") Long ownerId,
+                                                    @Param("sortKey") long sortKey,
+                                                    @Param("id") Long id,
+                                                    Pageable pageable);
+
+    /* Connector/J streams the result set row by row for this fetch size,
+    without buffering it and without server side cursors for other queries.
+    No other statement may run on the connection until the stream is closed,
+    so the owner is fetched in the same row instead of a second select */
+    String STREAMING_FETCH_SIZE = "" + Integer.MIN_VALUE;
+
+    /* Streams have to be consumed inside of a transaction and closed */
+    @QueryHints({
+            @QueryHint(name = HINT_FETCH_SIZE, value = STREAMING_FETCH_SIZE),
+            @QueryHint(name = HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT t FROM Task t JOIN FETCH t.owner o WHERE o.id = :ownerId" + PAGE_ORDER)
+    Stream<Task> streamByOwnerId(@Param("ownerId") Long ownerId);
+
+    @QueryHints({
+            @QueryHint(name = HINT_FETCH_SIZE, value = STREAMING_FETCH_SIZE),
+            @QueryHint(name = HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT t FROM Task t JOIN FETCH t.owner o WHERE t.team.id = :teamId AND o.id = :ownerId" + PAGE_ORDER)
+    Stream<Task> streamTeamTasksByOwnerId(@Param("teamId") Long teamId,
+                                          @Param("ownerId") Long ownerId);
+
+    @Query("SELECT t FROM Task t WHERE t.sortKey IS NULL AND t.id > :afterId ORDER BY t.id")
+    List<Task> findWithoutSortKey(@Param("afterId") Long afterId,
+                                  Pageable pageable);
+
+    @Query("SELECT MAX(t.id) FROM Task t")
+    Optional<Long> findMaxId();
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE Task t SET t.progress = :overdue, t.sortKey = " + OVERDUE_SORT_KEY + " " +
+            "WHERE t.id > :fromId AND t.id <= :toId AND t.toDateTime <= :now " +
+            "AND (t.progress IS NULL OR t.progress NOT IN :finalProgresses)")
+    int markOverdueInRange(@Param("fromId") Long fromId,
+                           @Param("toId") Long toId,
+                           @Param("now") LocalDateTime now,
+                           @Param("overdue") TaskProgress overdue,
+                           @Param("overdueBits") long overdueBits,
+                           @Param("finalProgresses") Collection<TaskProgress> finalProgresses);
+
+    @Query("SELECT t.id AS id, t.toDateTime AS toDateTime FROM Task t " +
+            "WHERE t.id > :afterId AND t.toDateTime > :from AND t.toDateTime <= :to " +
+            "AND (t.progress IS NULL OR t.progress NOT IN :finalProgresses) " +
+            "ORDER BY t.id")
+    List<TaskDeadline> findDeadlinesBetween(@Param("afterId") Long afterId,
+                                            @Param("from") LocalDateTime from,
+                                            @Param("to") LocalDateTime to,
+                                            @Param("finalProgresses") Collection<TaskProgress> finalProgresses,
+                                            Pageable pageable);
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE Task t SET t.progress = :overdue, t.sortKey = " + OVERDUE_SORT_KEY + " " +
+            "WHERE t.id IN :ids AND t.toDateTime <= :now " +
+            "AND (t.progress IS NULL OR t.progress NOT IN :finalProgresses)")
+    int markOverdue(@Param("ids") Collection<Long> ids,
+                    @Param("now") LocalDateTime now,
+                    @Param("overdue") TaskProgress overdue,
+                    @Param("overdueBits") long overdueBits,
+                    @Param("finalProgresses") Collection<TaskProgress> finalProgresses);
 }
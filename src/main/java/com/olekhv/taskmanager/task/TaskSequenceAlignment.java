@@ -0,0 +1,41 @@
+package com.olekhv.taskmanager.task;
+
+import com.olekhv.taskmanager.config.SchemaTables;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+/* Task ids used to come from auto increment. MySQL has no sequences,
+so task_seq is a table created by Hibernate starting from 1. Moves it
+past the existing ids once, before the first task is inserted.
+Runs after Hibernate has updated the schema, but before the web
+server accepts requests, so no request can take an old id */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class TaskSequenceAlignment implements SmartInitializingSingleton {
+
+    private static final String SEQUENCE_TABLE = "task_seq";
+
+    private static final String ALIGN_SEQUENCE = "UPDATE task_seq " +
+            "SET next_val = (SELECT COALESCE(MAX(t.id), 0) FROM task t) + ? " +
+            "WHERE next_val <= (SELECT COALESCE(MAX(t.id), 0) FROM task t) + ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final SchemaTables schemaTables;
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        if (!schemaTables.exists(SEQUENCE_TABLE)) {
+            return;
+        }
+
+        // A whole block above the last id, so none of the pooled values can collide
+        int gap = Task.ID_ALLOCATION_SIZE + 1;
+        if (jdbcTemplate.update(ALIGN_SEQUENCE, gap, gap) > 0) {
+            log.info("Moved {} past existing task ids", SEQUENCE_TABLE);
+        }
+    }
+}
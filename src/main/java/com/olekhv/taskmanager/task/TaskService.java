@@ -1,52 +1,54 @@
 package com.olekhv.taskmanager.task;
 
+import com.olekhv.taskmanager.config.MetricsConfiguration;
 import com.olekhv.taskmanager.exception.NoPermissionException;
 import com.olekhv.taskmanager.exception.TaskNotFoundException;
+import com.olekhv.taskmanager.task.deadline.DeadlineScheduler;
 import com.olekhv.taskmanager.user.Role;
 import com.olekhv.taskmanager.user.User;
+import com.olekhv.taskmanager.user.UserPrincipal;
 import com.olekhv.taskmanager.user.UserRepository;
+import io.micrometer.core.annotation.Timed;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
 
-import java.time.LocalDateTime;
-import java.util.Comparator;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.Objects;
 
 @Service
+@Timed(MetricsConfiguration.SERVICE_TIMER)
 @Slf4j
 @RequiredArgsConstructor
 public class TaskService {
 
     private final TaskRepository taskRepository;
     private final UserRepository userRepository;
+    private final DeadlineScheduler deadlineScheduler;
 
-    public void addTaskForSingleUser(String authUserEmail,
+    public void addTaskForSingleUser(UserPrincipal authUser,
                                      Task task) {
-        User user = userRepository.findByEmail(authUserEmail).get();
+        // Reference is enough to set the owner, user row is not selected
+        User user = userRepository.getReferenceById(authUser.getId());
 
         task.setOwner(user);
 
-        List<Task> tasks = user.getTasks();
-        tasks.add(task);
-        user.setTasks(tasks);
-
         taskRepository.save(task);
-        userRepository.save(user);
+
+        deadlineScheduler.schedule(task);
     }
 
     public void editTask(Long taskId,
                          Task editedTask,
-                         String authUserEmail) {
+                         UserPrincipal authUser) {
         Task task = taskRepository.findById(taskId).orElseThrow(
                 () -> new TaskNotFoundException("Task not found")
         );
 
-        User user = userRepository.findByEmail(authUserEmail).get();
-
-        if (!user.equals(task.getOwner()) && !user.getRole().equals(Role.SUPPORT)) {
+        if (!isOwner(task, authUser) && !authUser.getRole().equals(Role.SUPPORT)) {
             throw new TaskNotFoundException("Task not found");
         }
 
@@ -57,18 +59,18 @@ public class TaskService {
         task.setToDateTime(editedTask.getToDateTime());
 
         taskRepository.save(task);
+
+        deadlineScheduler.schedule(task);
     }
 
     public void changeTaskProgress(Long taskId,
                                    TaskProgress taskProgress,
-                                   String authUserEmail) {
+                                   UserPrincipal authUser) {
         Task task = taskRepository.findById(taskId).orElseThrow(
                 () -> new TaskNotFoundException("Task not found")
         );
 
-        User authUser = userRepository.findByEmail(authUserEmail).get();
-
-        if (!task.getOwner().equals(authUser) && !authUser.getRole().equals(Role.SUPPORT)) {
+        if (!isOwner(task, authUser) && !authUser.getRole().equals(Role.SUPPORT)) {
             throw new NoPermissionException("No permission");
         }
 
@@ -77,73 +79,63 @@ public class TaskService {
     }
 
     public void deleteTask(Long taskId,
-                           String authUserEmail) {
+                           UserPrincipal authUser) {
         Task task = taskRepository.findById(taskId).orElseThrow(
                 () -> new TaskNotFoundException("Task not found")
         );
 
-        User authUser = userRepository.findByEmail(authUserEmail).get();
-
-        if (!authUser.equals(task.getOwner()) && !authUser.getRole().equals(Role.SUPPORT)) {
+        if (!isOwner(task, authUser) && !authUser.getRole().equals(Role.SUPPORT)) {
             throw new TaskNotFoundException("Task not found");
         }
 
-        List<Task> tasks = authUser.getTasks();
-        tasks.remove(task);
-
         task.setProgress(TaskProgress.CLOSED);
         taskRepository.save(task);
     }
 
     /* Allow supporter to list all
     tasks of the specific user */
-    public List<Task> listTasksOfSpecificUser(String providedUserEmail,
-                                              String authUserEmail) {
-        User authUser = userRepository.findByEmail(authUserEmail).get();
-
-        User providedUser = userRepository.findByEmail(providedUserEmail).orElseThrow(
-                () -> new UsernameNotFoundException("User " + providedUserEmail + " not found")
-        );
-
+    public List<TaskSummaryDTO> listTasksOfSpecificUser(String providedUserEmail,
+                                                        UserPrincipal authUser) {
         if (!authUser.getRole().equals(Role.SUPPORT)) {
             throw new NoPermissionException("No permission");
         }
 
-        List<Task> tasks = providedUser.getTasks();
-
-        tasks.stream()
-                .filter(task -> task.getToDateTime().isBefore(LocalDateTime.now()) || task.getToDateTime().isEqual(LocalDateTime.now()))
-                .forEach(task -> changeTaskProgress(task.getId(), TaskProgress.OVERDUE, authUserEmail));
-
-        sortListOfTasks(tasks);
+        User providedUser = userRepository.findByEmail(providedUserEmail).orElseThrow(
+                () -> new UsernameNotFoundException("User " + providedUserEmail + " not found")
+        );
 
-        return tasks;
+        return taskRepository.findSummariesByOwnerId(providedUser.getId());
     }
 
-    /* Allow users
-    to watch all their tasks */
-    public List<Task> listAllTasks(String authUserEmail) {
-        User authUser = userRepository.findByEmail(authUserEmail).get();
+    /* Allow users to watch all their tasks
+    page by page, ordering is done by database */
+    public TaskPage listAllTasks(UserPrincipal authUser,
+                                 String cursor,
+                                 int size) {
+        int pageSize = TaskPage.pageSize(size);
+        List<TaskSummaryDTO> tasks = fetchTasksPage(authUser.getId(), cursor, pageSize);
 
-        List<Task> tasks = authUser.getTasks();
+        return TaskPage.of(tasks, pageSize);
+    }
 
-        tasks.stream()
-                .filter(task -> task.getToDateTime().isBefore(LocalDateTime.now()) || task.getToDateTime().isEqual(LocalDateTime.now()))
-                .forEach(task -> changeTaskProgress(task.getId(), TaskProgress.OVERDUE, authUserEmail));
+    private List<TaskSummaryDTO> fetchTasksPage(Long ownerId,
+                                                String cursor,
+                                                int pageSize) {
+        // One extra row is fetched to find out whether next page exists
+        Pageable limit = PageRequest.of(0, pageSize + 1);
 
-        sortListOfTasks(tasks);
+        if (cursor == null || cursor.isBlank()) {
+            return taskRepository.findPageByOwnerId(ownerId, limit);
+        }
 
-        return tasks;
+        TaskCursor after = TaskCursor.decode(cursor);
+        return taskRepository.findPageByOwnerIdAfter(ownerId,
+                after.getSortKey(),
+                after.getId(),
+                limit);
     }
 
-    private void sortListOfTasks(List<Task> tasks) {
-        tasks.sort(Comparator.comparing(
-                        Task::getPriority).reversed()
-                .thenComparing(
-                        Task::getToDateTime).reversed()
-                .thenComparing(
-                        Task::getFromDateTime).reversed()
-                .thenComparing(
-                        Task::getProgress));
+    private boolean isOwner(Task task, UserPrincipal authUser) {
+        return task.getOwner() != null && Objects.equals(task.getOwner().getId(), authUser.getId());
     }
 }
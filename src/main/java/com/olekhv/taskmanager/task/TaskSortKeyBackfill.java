@@ -0,0 +1,46 @@
+package com.olekhv.taskmanager.task;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/* Fills sort_key of tasks created before the column existed.
+New and edited tasks get their key from the entity callbacks,
+so after the first run there is nothing left to do. Runs before
+the web server accepts requests, so reads never see a missing key */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class TaskSortKeyBackfill implements SmartInitializingSingleton {
+
+    private static final int PAGE_SIZE = 500;
+
+    private final TaskRepository taskRepository;
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        long afterId = 0;
+        int updated = 0;
+        List<Task> page;
+        do {
+            page = taskRepository.findWithoutSortKey(afterId, PageRequest.of(0, PAGE_SIZE));
+            if (page.isEmpty()) {
+                break;
+            }
+
+            page.forEach(Task::updateSortKey);
+            taskRepository.saveAll(page);
+
+            afterId = page.get(page.size() - 1).getId();
+            updated += page.size();
+        } while (page.size() == PAGE_SIZE);
+
+        if (updated > 0) {
+            log.info("Filled sort key of {} tasks", updated);
+        }
+    }
+}
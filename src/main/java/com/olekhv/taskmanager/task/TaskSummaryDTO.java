@@ -0,0 +1,31 @@
+package com.olekhv.taskmanager.task;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/* Read model of a task for list endpoints. Selected by constructor
+queries in TaskRepository, so only these columns are read and
+the owner is never loaded as an entity */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class TaskSummaryDTO {
+    private Long id;
+    private String name;
+    private String description;
+    private LocalDateTime fromDateTime;
+    private LocalDateTime toDateTime;
+    private TaskPriority priority;
+    private TaskProgress progress;
+    // Only needed to build the page cursor
+    @JsonIgnore
+    private Long sortKey;
+    private Long ownerId;
+    private String ownerEmail;
+}
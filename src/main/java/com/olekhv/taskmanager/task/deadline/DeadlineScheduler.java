@@ -0,0 +1,152 @@
+package com.olekhv.taskmanager.task.deadline;
+
+import com.olekhv.taskmanager.task.Task;
+import com.olekhv.taskmanager.task.TaskDeadline;
+import com.olekhv.taskmanager.task.TaskOrdering;
+import com.olekhv.taskmanager.task.TaskProgress;
+import com.olekhv.taskmanager.task.TaskRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+
+/* Keeps upcoming task deadlines in memory and marks tasks
+as overdue at their deadline. Only deadlines inside of the
+loaded window are tracked, the window is moved forward periodically */
+@Component
+@Slf4j
+public class DeadlineScheduler {
+
+    private static final int LEVELS = 4;
+    private static final int LOAD_PAGE_SIZE = 1000;
+
+    private final TaskRepository taskRepository;
+    private final DeadlineTimerWheel wheel;
+    private final long windowMillis;
+    private final int batchSize;
+    private final Counter markedRows;
+
+    // Guarded by wheel
+    private LocalDateTime loadedUntil;
+
+    public DeadlineScheduler(TaskRepository taskRepository,
+                             MeterRegistry meterRegistry,
+                             @Value("${application.tasks.deadline-wheel.tick:1000}") long tickMillis,
+                             @Value("${application.tasks.deadline-wheel.window:86400000}") long windowMillis,
+                             @Value("${application.tasks.deadline-wheel.batch-size:500}") int batchSize) {
+        this.taskRepository = taskRepository;
+        this.wheel = new DeadlineTimerWheel(tickMillis, LEVELS, System.currentTimeMillis());
+        if (windowMillis > wheel.horizonMillis()) {
+            throw new IllegalStateException("Deadline window is longer than timer wheel horizon");
+        }
+        this.windowMillis = windowMillis;
+        this.batchSize = batchSize;
+        this.loadedUntil = LocalDateTime.now();
+        this.markedRows = Counter.builder("tasks.overdue.wheel.rows")
+                .description("Tasks marked as overdue at their deadline")
+                .register(meterRegistry);
+        Gauge.builder("tasks.overdue.wheel.pending", this, DeadlineScheduler::pendingDeadlines)
+                .description("Deadlines tracked in memory")
+                .register(meterRegistry);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        LocalDateTime now = LocalDateTime.now();
+        int loaded = loadDeadlines(now, now.plus(Duration.ofMillis(windowMillis)));
+        log.info("Loaded {} upcoming task deadlines", loaded);
+    }
+
+    @Scheduled(fixedDelayString = "${application.tasks.deadline-wheel.refill-interval:3600000}",
+            initialDelayString = "${application.tasks.deadline-wheel.refill-interval:3600000}")
+    public void refill() {
+        LocalDateTime from;
+        synchronized (wheel) {
+            from = loadedUntil;
+        }
+        loadDeadlines(from, LocalDateTime.now().plus(Duration.ofMillis(windowMillis)));
+    }
+
+    /* Called whenever task deadline or progress may have changed */
+    public void schedule(Task task) {
+        if (task.getId() == null) {
+            return;
+        }
+        synchronized (wheel) {
+            if (task.getToDateTime() == null
+                    || TaskProgress.FINAL_PROGRESSES.contains(task.getProgress())
+                    || task.getToDateTime().isAfter(loadedUntil)) {
+                wheel.cancel(task.getId());
+                return;
+            }
+            wheel.schedule(task.getId(), toEpochMillis(task.getToDateTime()));
+        }
+    }
+
+    @Scheduled(fixedRateString = "${application.tasks.deadline-wheel.tick:1000}")
+    public void tick() {
+        List<Long> expiredTaskIds = new ArrayList<>();
+        synchronized (wheel) {
+            wheel.advanceTo(System.currentTimeMillis(), expiredTaskIds::add);
+        }
+        flush(expiredTaskIds);
+    }
+
+    public int pendingDeadlines() {
+        synchronized (wheel) {
+            return wheel.size();
+        }
+    }
+
+    private void flush(List<Long> expiredTaskIds) {
+        LocalDateTime now = LocalDateTime.now();
+        for (int from = 0; from < expiredTaskIds.size(); from += batchSize) {
+            List<Long> batch = expiredTaskIds.subList(from, Math.min(from + batchSize, expiredTaskIds.size()));
+            markedRows.increment(taskRepository.markOverdue(batch, now,
+                    TaskProgress.OVERDUE, TaskOrdering.progressBits(TaskProgress.OVERDUE),
+                    TaskProgress.FINAL_PROGRESSES));
+        }
+    }
+
+    private int loadDeadlines(LocalDateTime from, LocalDateTime to) {
+        long afterId = 0;
+        int loaded = 0;
+        List<TaskDeadline> page;
+        do {
+            page = taskRepository.findDeadlinesBetween(afterId, from, to,
+                    TaskProgress.FINAL_PROGRESSES, PageRequest.of(0, LOAD_PAGE_SIZE));
+            synchronized (wheel) {
+                for (TaskDeadline deadline : page) {
+                    wheel.schedule(deadline.getId(), toEpochMillis(deadline.getToDateTime()));
+                }
+            }
+            if (!page.isEmpty()) {
+                afterId = page.get(page.size() - 1).getId();
+            }
+            loaded += page.size();
+        } while (page.size() == LOAD_PAGE_SIZE);
+
+        synchronized (wheel) {
+            if (to.isAfter(loadedUntil)) {
+                loadedUntil = to;
+            }
+        }
+        return loaded;
+    }
+
+    private static long toEpochMillis(LocalDateTime dateTime) {
+        return dateTime.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+}
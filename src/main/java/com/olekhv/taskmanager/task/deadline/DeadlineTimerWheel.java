@@ -0,0 +1,164 @@
+package com.olekhv.taskmanager.task.deadline;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.LongConsumer;
+
+/* Hierarchical timing wheel of task deadlines.
+Every level has 64 slots, a slot of level N covers 64^N ticks.
+Scheduling and cancelling are O(1), entries of higher levels
+are cascaded down when the lower level wraps around.
+Not thread safe, callers are responsible for locking */
+public class DeadlineTimerWheel {
+
+    private static final int SLOT_BITS = 6;
+    private static final int SLOTS = 1 << SLOT_BITS;
+    private static final int SLOT_MASK = SLOTS - 1;
+
+    private final long tickMillis;
+    private final int levels;
+    private final List<List<Entry>> slots;
+    private final List<Entry> due = new ArrayList<>();
+    private final Map<Long, Entry> entries = new HashMap<>();
+
+    // Next tick that has not been processed yet
+    private long currentTick;
+
+    public DeadlineTimerWheel(long tickMillis, int levels, long startMillis) {
+        if (tickMillis <= 0 || levels <= 0 || SLOT_BITS * levels >= Long.SIZE - 1) {
+            throw new IllegalArgumentException("Invalid timer wheel configuration");
+        }
+        this.tickMillis = tickMillis;
+        this.levels = levels;
+        this.slots = new ArrayList<>(levels * SLOTS);
+        for (int i = 0; i < levels * SLOTS; i++) {
+            slots.add(new ArrayList<>());
+        }
+        this.currentTick = Math.floorDiv(startMillis, tickMillis);
+    }
+
+    /* Returns false if deadline is further than the wheel horizon,
+    deadlines that have already passed expire on the next advance */
+    public boolean schedule(long taskId, long deadlineMillis) {
+        long deadlineTick = -Math.floorDiv(-deadlineMillis, tickMillis);
+        if (deadlineTick - currentTick >= 1L << (SLOT_BITS * levels)) {
+            cancel(taskId);
+            return false;
+        }
+
+        Entry entry = new Entry(taskId, deadlineTick);
+        Entry previous = entries.put(taskId, entry);
+        if (previous != null) {
+            previous.cancelled = true;
+        }
+        place(entry);
+        return true;
+    }
+
+    public void cancel(long taskId) {
+        Entry entry = entries.remove(taskId);
+        if (entry != null) {
+            entry.cancelled = true;
+        }
+    }
+
+    /* Processes every tick up to nowMillis and passes
+    ids of expired tasks to the consumer */
+    public int advanceTo(long nowMillis, LongConsumer expired) {
+        int expiredCount = expire(due, expired);
+        due.clear();
+
+        long nowTick = Math.floorDiv(nowMillis, tickMillis);
+        while (currentTick <= nowTick) {
+            int index = slotIndex(currentTick, 0);
+            if (index == 0) {
+                cascade(1);
+            }
+            List<Entry> bucket = slot(0, index);
+            expiredCount += expire(bucket, expired);
+            bucket.clear();
+            currentTick++;
+        }
+        return expiredCount;
+    }
+
+    public boolean contains(long taskId) {
+        return entries.containsKey(taskId);
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    public long horizonMillis() {
+        return (1L << (SLOT_BITS * levels)) * tickMillis;
+    }
+
+    private int expire(List<Entry> bucket, LongConsumer expired) {
+        int expiredCount = 0;
+        for (Entry entry : bucket) {
+            if (!entry.cancelled) {
+                entries.remove(entry.taskId);
+                expired.accept(entry.taskId);
+                expiredCount++;
+            }
+        }
+        return expiredCount;
+    }
+
+    private void cascade(int level) {
+        if (level >= levels) {
+            return;
+        }
+        int index = slotIndex(currentTick, level);
+        List<Entry> bucket = slot(level, index);
+        if (!bucket.isEmpty()) {
+            List<Entry> moved = new ArrayList<>(bucket);
+            bucket.clear();
+            for (Entry entry : moved) {
+                if (!entry.cancelled) {
+                    place(entry);
+                }
+            }
+        }
+        if (index == 0) {
+            cascade(level + 1);
+        }
+    }
+
+    private void place(Entry entry) {
+        long delta = entry.deadlineTick - currentTick;
+        if (delta < 0) {
+            due.add(entry);
+            return;
+        }
+        for (int level = 0; level < levels; level++) {
+            if (delta < 1L << (SLOT_BITS * (level + 1))) {
+                slot(level, slotIndex(entry.deadlineTick, level)).add(entry);
+                return;
+            }
+        }
+        throw new IllegalStateException("Deadline is out of timer wheel range");
+    }
+
+    private List<Entry> slot(int level, int index) {
+        return slots.get(level * SLOTS + index);
+    }
+
+    private static int slotIndex(long tick, int level) {
+        return (int) ((tick >>> (SLOT_BITS * level)) & SLOT_MASK);
+    }
+
+    private static final class Entry {
+        private final long taskId;
+        private final long deadlineTick;
+        private boolean cancelled;
+
+        private Entry(long taskId, long deadlineTick) {
+            this.taskId = taskId;
+            this.deadlineTick = deadlineTick;
+        }
+    }
+}
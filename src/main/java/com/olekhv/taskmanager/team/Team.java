@@ -7,16 +7,26 @@ import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.NaturalId;
+import org.hibernate.annotations.NaturalIdCache;
 
 import java.util.ArrayList;
 import java.util.List;
 
 @Entity
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = Team.CACHE_REGION)
+@NaturalIdCache(region = Team.NATURAL_ID_CACHE_REGION)
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
 @Builder
 public class Team {
+    public static final String CACHE_REGION = "team";
+    public static final String NATURAL_ID_CACHE_REGION = "team-natural-id";
+
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     @Column(name = "id", nullable = false)
@@ -24,22 +34,20 @@ public class Team {
     private String name;
     private String description;
 
-    @OneToOne(cascade = CascadeType.ALL)
+    // Only the id is needed for permission checks, user row is loaded on access
+    @OneToOne(cascade = CascadeType.ALL, fetch = FetchType.LAZY)
     private User owner;
 
-    @OneToMany
-    private List<User> admins = new ArrayList<>();
-
     private Integer numberOfMembers;
 
+    // Allocated by JoinCodeAllocator
+    @NaturalId
+    @Column(unique = true)
     private String joinCode;
 
     @Enumerated(EnumType.STRING)
     private TeamType type;
 
-    @ManyToMany(cascade = CascadeType.ALL)
-    private List<User> members = new ArrayList<>();
-
-    @OneToMany(cascade = CascadeType.ALL)
+    @OneToMany(mappedBy = "team", cascade = CascadeType.ALL)
     private List<Task> tasks = new ArrayList<>();
 }
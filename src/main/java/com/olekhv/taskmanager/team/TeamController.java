@@ -1,14 +1,16 @@
 package com.olekhv.taskmanager.team;
 
 import com.olekhv.taskmanager.task.Task;
+import com.olekhv.taskmanager.task.TaskExportFormat;
+import com.olekhv.taskmanager.task.TaskPage;
 import com.olekhv.taskmanager.task.TaskProgress;
+import com.olekhv.taskmanager.user.UserPrincipal;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
-import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.web.bind.annotation.*;
-
-import java.util.List;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 @RestController
 @RequiredArgsConstructor
@@ -19,52 +21,73 @@ public class TeamController {
 
     @PostMapping("/create")
     public ResponseEntity<String> createTeam(@RequestBody Team team,
-                                             @AuthenticationPrincipal UserDetails userDetails){
-        teamService.createTeam(team, userDetails.getUsername());
+                                             @AuthenticationPrincipal UserPrincipal principal){
+        teamService.createTeam(team, principal);
         return ResponseEntity.ok("Team was created successfully");
     }
 
     @PostMapping("/tasks")
     public ResponseEntity<String> addTaskForTeamMember(@RequestParam Long teamId,
                                                        @RequestBody Task task,
-                                                       @AuthenticationPrincipal UserDetails userDetails){
-        teamService.addTaskForTeamMember(teamId, task, userDetails.getUsername());
+                                                       @AuthenticationPrincipal UserPrincipal principal){
+        teamService.addTaskForTeamMember(teamId, task, principal);
         return ResponseEntity.ok("Task was added successfully");
     }
 
+    @PostMapping("/tasks/bulk")
+    public ResponseEntity<String> assignTaskToTeamMembers(@RequestParam Long teamId,
+                                                          @RequestBody TeamTaskAssignment assignment,
+                                                          @AuthenticationPrincipal UserPrincipal principal){
+        int assigned = teamService.assignTaskToTeamMembers(teamId, assignment, principal);
+        return ResponseEntity.ok("Task was added for " + assigned + " members");
+    }
+
     @PostMapping("/tasks/edit")
     public ResponseEntity<String> editTeamTask(@RequestParam Long taskId,
                                                @RequestBody Task task,
-                                               @AuthenticationPrincipal UserDetails userDetails){
-        teamService.editTeamTask(taskId, task, userDetails.getUsername());
+                                               @AuthenticationPrincipal UserPrincipal principal){
+        teamService.editTeamTask(taskId, task, principal);
         return ResponseEntity.ok("Task was edited successfully");
     }
 
     @GetMapping("/tasks")
-    public ResponseEntity<List<Task>> listAllTasksOfTeamMember(@RequestParam("userEmail") String userEmail,
-                                                               @RequestParam Long teamId){
-        return ResponseEntity.ok(teamService.listAllTasksOfTeamMember(userEmail, teamId));
+    public ResponseEntity<TaskPage> listAllTasksOfTeamMember(@RequestParam("userEmail") String userEmail,
+                                                             @RequestParam Long teamId,
+                                                             @RequestParam(required = false) String cursor,
+                                                             @RequestParam(defaultValue = "50") int size){
+        return ResponseEntity.ok(teamService.listAllTasksOfTeamMember(userEmail, teamId, cursor, size));
+    }
+
+    @GetMapping("/tasks/export")
+    public ResponseEntity<StreamingResponseBody> exportTasksOfTeamMember(@RequestParam("userEmail") String userEmail,
+                                                                         @RequestParam Long teamId,
+                                                                         @RequestParam(defaultValue = "NDJSON") TaskExportFormat format){
+        StreamingResponseBody body = teamService.exportTasksOfTeamMember(userEmail, teamId, format);
+        return ResponseEntity.ok()
+                .contentType(format.getMediaType())
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"team-tasks." + format.getExtension() + "\"")
+                .body(body);
     }
 
     @PutMapping("/tasks/edit/progress")
     public ResponseEntity<String> changeTeamTaskProgress(@RequestParam Long taskId,
                                                          @RequestParam TaskProgress taskProgress,
-                                                         @AuthenticationPrincipal UserDetails userDetails){
-        teamService.changeTeamTaskProgress(taskId, taskProgress, userDetails.getUsername());
+                                                         @AuthenticationPrincipal UserPrincipal principal){
+        teamService.changeTeamTaskProgress(taskId, taskProgress, principal);
         return ResponseEntity.ok("Progress was changed successfully");
     }
 
     @DeleteMapping("/tasks")
-    public ResponseEntity<String> deleteTaskFromTeamMember(@AuthenticationPrincipal UserDetails userDetails,
+    public ResponseEntity<String> deleteTaskFromTeamMember(@AuthenticationPrincipal UserPrincipal principal,
                                                            @RequestParam Long taskId){
-        teamService.deleteTaskFromTeamMember(userDetails.getUsername(), taskId);
+        teamService.deleteTaskFromTeamMember(principal, taskId);
         return ResponseEntity.ok("Task was deleted successfully");
     }
 
     @PostMapping("/join")
     public ResponseEntity<String> joinTeam(@RequestParam("code") String joinCode,
-                                           @AuthenticationPrincipal UserDetails userDetails){
-        String joinTeamResponse = teamService.joinTeamByCode(joinCode, userDetails.getUsername());
+                                           @AuthenticationPrincipal UserPrincipal principal){
+        String joinTeamResponse = teamService.joinTeamByCode(joinCode, principal);
         return ResponseEntity.ok(joinTeamResponse.equals("joined")
                 ? "Joined successfully"
                 : "Request was sent");
@@ -73,8 +96,8 @@ public class TeamController {
     @PostMapping("/add")
     public ResponseEntity<String> addUserToTeam(@RequestParam("code") String joinCode,
                                            @RequestParam("userEmail") String userEmail,
-                                           @AuthenticationPrincipal UserDetails userDetails){
-        teamService.addUserToTeam(joinCode, userEmail, userDetails.getUsername());
+                                           @AuthenticationPrincipal UserPrincipal principal){
+        teamService.addUserToTeam(joinCode, userEmail, principal);
         return ResponseEntity.ok("User was added to team");
     }
 
@@ -82,14 +105,14 @@ public class TeamController {
     public ResponseEntity<String> changeTeamMemberRole(@RequestParam String userEmail,
                                                        @RequestParam Long teamId,
                                                        @RequestParam TeamRole teamRole,
-                                                       @AuthenticationPrincipal UserDetails userDetails){
-        teamService.changeTeamMemberRole(userEmail, teamId, teamRole, userDetails.getUsername());
+                                                       @AuthenticationPrincipal UserPrincipal principal){
+        teamService.changeTeamMemberRole(userEmail, teamId, teamRole, principal);
         return ResponseEntity.ok("Role successfully changed to " + teamRole.getName());
     }
 
     @PostMapping("/delete")
     public ResponseEntity<String> deleteRequest(@RequestParam("request") Long requestId,
-                                                @AuthenticationPrincipal UserDetails userDetails){
+                                                @AuthenticationPrincipal UserPrincipal principal){
         teamService.deleteTeamJoinRequest(requestId);
         return ResponseEntity.ok("Request successfully deleted");
     }
@@ -2,14 +2,19 @@ package com.olekhv.taskmanager.team;
 
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.Optional;
 
 @Repository
-public interface TeamRepository extends JpaRepository<Team, Long> {
-    Optional<Team> findByJoinCode(String joinCode);
+public interface TeamRepository extends JpaRepository<Team, Long>, TeamRepositoryCustom {
 
-    @Query("SELECT t FROM Team t JOIN t.tasks task WHERE task.id = ?1")
-    Optional<Team> findByTaskId(Long taskId);
+    /* Task, id of its team and role of the user in that team in one query.
+    Team id is null for personal tasks, role is null for non-members */
+    @Query("SELECT new com.olekhv.taskmanager.team.TeamTaskAccess(t, t.team.id, m.role) " +
+            "FROM Task t LEFT JOIN TeamMembership m ON m.team.id = t.team.id AND m.user.id = :userId " +
+            "WHERE t.id = :taskId")
+    Optional<TeamTaskAccess> findTaskAccess(@Param("taskId") Long taskId,
+                                            @Param("userId") Long userId);
 }
@@ -0,0 +1,8 @@
+package com.olekhv.taskmanager.team;
+
+import java.util.Optional;
+
+public interface TeamRepositoryCustom {
+    // Join code is the natural id of a team, see TeamRepositoryCustomImpl
+    Optional<Team> findByJoinCode(String joinCode);
+}
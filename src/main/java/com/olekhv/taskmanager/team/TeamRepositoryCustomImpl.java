@@ -0,0 +1,23 @@
+package com.olekhv.taskmanager.team;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.hibernate.Session;
+
+import java.util.Optional;
+
+/* Loads teams by join code through the natural id API, so both
+code to id resolution and the team itself come from the
+second-level cache when present */
+public class TeamRepositoryCustomImpl implements TeamRepositoryCustom {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public Optional<Team> findByJoinCode(String joinCode) {
+        return entityManager.unwrap(Session.class)
+                .bySimpleNaturalId(Team.class)
+                .loadOptional(joinCode);
+    }
+}
@@ -1,48 +1,68 @@
 package com.olekhv.taskmanager.team;
 
+import com.olekhv.taskmanager.config.MetricsConfiguration;
 import com.olekhv.taskmanager.exception.NoPermissionException;
 import com.olekhv.taskmanager.exception.TaskNotFoundException;
 import com.olekhv.taskmanager.exception.TeamNotFoundException;
 import com.olekhv.taskmanager.exception.UserAlreadyExistsException;
 import com.olekhv.taskmanager.task.Task;
+import com.olekhv.taskmanager.task.TaskCursor;
+import com.olekhv.taskmanager.task.TaskExportFormat;
+import com.olekhv.taskmanager.task.TaskExportService;
+import com.olekhv.taskmanager.task.TaskPage;
 import com.olekhv.taskmanager.task.TaskProgress;
 import com.olekhv.taskmanager.task.TaskRepository;
+import com.olekhv.taskmanager.task.TaskSummaryDTO;
+import com.olekhv.taskmanager.task.deadline.DeadlineScheduler;
+import com.olekhv.taskmanager.team.joinCode.JoinCodeAllocator;
 import com.olekhv.taskmanager.team.teamJoinRequest.TeamJoinRequest;
 import com.olekhv.taskmanager.team.teamJoinRequest.TeamJoinRequestRepository;
+import com.olekhv.taskmanager.team.teamMembership.TeamMember;
+import com.olekhv.taskmanager.team.teamMembership.TeamMembership;
+import com.olekhv.taskmanager.team.teamMembership.TeamMembershipRepository;
 import com.olekhv.taskmanager.user.User;
+import com.olekhv.taskmanager.user.UserPrincipal;
 import com.olekhv.taskmanager.user.UserRepository;
+import io.micrometer.core.annotation.Timed;
 import jakarta.persistence.NonUniqueResultException;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
-import java.time.LocalDateTime;
-import java.util.Comparator;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Objects;
 import java.util.Optional;
-import java.util.UUID;
-import java.util.stream.Collectors;
+import java.util.Set;
 
 @Service
+@Timed(MetricsConfiguration.SERVICE_TIMER)
 @RequiredArgsConstructor
 @Slf4j
 public class TeamService {
 
+    static final Set<TeamRole> ADMIN_ROLES = Set.of(TeamRole.ADMIN);
+    private static final int JOIN_CODE_ATTEMPTS = 5;
+
     private final TeamRepository teamRepository;
     private final UserRepository userRepository;
     private final TeamJoinRequestRepository teamJoinRequestRepository;
+    private final TeamMembershipRepository teamMembershipRepository;
     private final TaskRepository taskRepository;
+    private final TaskExportService taskExportService;
+    private final DeadlineScheduler deadlineScheduler;
+    private final JoinCodeAllocator joinCodeAllocator;
 
     public void createTeam(Team team,
-                           String authUserEmail) {
-        User authUser = userRepository.findByEmail(authUserEmail).orElseThrow(
-                () -> new UsernameNotFoundException("User " + authUserEmail + " not found")
-        );
+                           UserPrincipal authUser) {
+        User owner = userRepository.getReferenceById(authUser.getId());
 
-        String generatedJoinCode = generateJoinCodeIfUnique();
-
-        generateTeam(team, authUser, generatedJoinCode);
+        generateTeam(team, owner);
     }
 
     public void editTeamInformation(Long teamId,
@@ -59,21 +79,18 @@ public class TeamService {
     }
 
     public String joinTeamByCode(String joinCode,
-                                 String authUserEmail) {
-        User authUser = userRepository.findByEmail(authUserEmail).get();
+                                 UserPrincipal authUser) {
         Team team = teamRepository.findByJoinCode(joinCode).orElseThrow(
                 () -> new TeamNotFoundException("Code " + joinCode + " is invalid")
         );
 
         checkRequest(authUser, team);
-        return generateResultOfTryToJoin(joinCode, authUserEmail, authUser, team);
+        return generateResultOfTryToJoin(joinCode, authUser, team);
     }
 
     public void addUserToTeam(String joinCode,
                               String providedUserEmail,
-                              String authUserEmail) {
-        User authUser = userRepository.findByEmail(authUserEmail).get();
-
+                              UserPrincipal authUser) {
         User providedUser = userRepository.findByEmail(providedUserEmail).orElseThrow(
                 () -> new UsernameNotFoundException("User " + providedUserEmail + " not found")
         );
@@ -82,15 +99,15 @@ public class TeamService {
                 () -> new TeamNotFoundException("Code " + joinCode + " is invalid")
         );
 
-        if (!team.getAdmins().contains(authUser)) {
+        if (!isAdmin(team, authUser.getId())) {
             throw new NoPermissionException("You have no permission");
         }
 
-        if (team.getMembers().contains(providedUser)) {
+        if (isMember(team, providedUser.getId())) {
             throw new UserAlreadyExistsException("User is already in this team");
         }
 
-        team.getMembers().add(providedUser);
+        addMembership(team, providedUser, TeamRole.MEMBER);
         team.setNumberOfMembers(team.getNumberOfMembers() + 1);
 
         checkIfRequestIsPresent(providedUserEmail, team);
@@ -101,9 +118,7 @@ public class TeamService {
     public void changeTeamMemberRole(String providedUserEmail,
                                      Long teamId,
                                      TeamRole teamRole,
-                                     String authUserEmail) {
-        User authUser = userRepository.findByEmail(authUserEmail).get();
-
+                                     UserPrincipal authUser) {
         User providedUser = userRepository.findByEmail(providedUserEmail).orElseThrow(
                 () -> new UsernameNotFoundException("User " + providedUserEmail + " not found")
         );
@@ -111,32 +126,18 @@ public class TeamService {
                 () -> new TeamNotFoundException("Team not found")
         );
 
-        checkAccess(authUser, providedUser, team);
+        checkAccess(authUser.getId(), providedUser.getId(), team);
 
-        switch (teamRole) {
-            case MEMBER:
-                if (team.getAdmins().contains(providedUser)) {
-                    team.getAdmins().remove(providedUser);
-                    team.getMembers().add(providedUser);
-                }
-                break;
-            case ADMIN:
-                if (!team.getOwner().equals(authUser)) {
-                    throw new NoPermissionException("You have no permission");
-                }
-
-                team.getAdmins().add(providedUser);
-                break;
+        if (teamRole == TeamRole.ADMIN && !isOwner(team, authUser.getId())) {
+            throw new NoPermissionException("You have no permission");
         }
 
-        teamRepository.save(team);
+        teamMembershipRepository.updateRole(team.getId(), providedUser.getId(), teamRole);
     }
 
     public void removeTeamMember(String providedUserEmail,
                                  Long teamId,
-                                 String authUserEmail) {
-        User authUser = userRepository.findByEmail(authUserEmail).get();
-
+                                 UserPrincipal authUser) {
         User providedUser = userRepository.findByEmail(providedUserEmail).orElseThrow(
                 () -> new UsernameNotFoundException("User " + providedUserEmail + " not found")
         );
@@ -144,19 +145,20 @@ public class TeamService {
                 () -> new TeamNotFoundException("Team not found")
         );
 
-        checkAccess(authUser, providedUser, team);
+        checkAccess(authUser.getId(), providedUser.getId(), team);
 
-        if (team.getOwner().equals(providedUser)) {
+        if (isOwner(team, providedUser.getId())) {
             throw new NoPermissionException("Owner can't be removed");
         }
 
-        if ((team.getAdmins().contains(providedUser) || team.getOwner().equals(providedUser))
-                && !team.getOwner().equals(authUser)) {
+        if (isAdmin(team, providedUser.getId()) && !isOwner(team, authUser.getId())) {
             throw new NoPermissionException("You have no permission to delete this member");
         }
 
-        team.getMembers().remove(providedUser);
-        teamRepository.save(team);
+        if (teamMembershipRepository.deleteByTeamIdAndUserId(team.getId(), providedUser.getId()) > 0) {
+            team.setNumberOfMembers(team.getNumberOfMembers() - 1);
+            teamRepository.save(team);
+        }
     }
 
     public void deleteTeamJoinRequest(Long requestId) {
@@ -166,63 +168,95 @@ public class TeamService {
 
     public void addTaskForTeamMember(Long teamId,
                                      Task task,
-                                     String authUserEmail) {
-        User authUser = userRepository.findByEmail(authUserEmail).get();
-
+                                     UserPrincipal authUser) {
         User providedUser = task.getOwner();
 
         Team team = teamRepository.findById(teamId).orElseThrow(
                 () -> new TeamNotFoundException("Team not found")
         );
 
-        checkAccess(authUser, providedUser, team);
+        checkAccess(authUser.getId(), providedUser.getId(), team);
 
         task.setOwner(providedUser);
-        team.getTasks().add(task);
+        task.setTeam(team);
+        taskRepository.save(task);
 
-        teamRepository.save(team);
+        deadlineScheduler.schedule(task);
     }
 
-    public List<Task> listAllTasksOfTeamMember(String providedUserEmail,
-                                               Long teamId) {
-        User providedUser = userRepository.findByEmail(providedUserEmail).orElseThrow(
-                () -> new UsernameNotFoundException("User " + providedUserEmail + " not found")
-        );
-
+    /* Gives a copy of the task to every selected member. Permission is
+    checked once, members are resolved with one query and only new task
+    rows are inserted, the team itself and its task list are not saved */
+    public int assignTaskToTeamMembers(Long teamId,
+                                       TeamTaskAssignment assignment,
+                                       UserPrincipal authUser) {
         Team team = teamRepository.findById(teamId).orElseThrow(
                 () -> new TeamNotFoundException("Team not found")
         );
 
-        List<Task> tasks = team.getTasks().stream()
-                .filter(task -> task.getOwner().equals(providedUser))
-                .collect(Collectors.toList());;
+        if (!isAdmin(team, authUser.getId())) {
+            throw new NoPermissionException("You have no permission");
+        }
+
+        if (assignment.getTask() == null) {
+            throw new IllegalArgumentException("Task is required");
+        }
 
-        tasks.stream()
-                .filter(task -> task.getToDateTime().isBefore(LocalDateTime.now()) || task.getToDateTime().isEqual(LocalDateTime.now()))
-                .forEach(task -> changeTeamTaskProgress(task.getId(), TaskProgress.OVERDUE, providedUserEmail));
+        List<Task> tasks = findAssignees(team, assignment).stream()
+                .map(member -> copyTask(assignment.getTask(), team, member.getUserId()))
+                .toList();
 
-        sortListOfTasks(tasks);
+        taskRepository.saveAllAndFlush(tasks);
 
-        return tasks;
+        tasks.forEach(deadlineScheduler::schedule);
+        return tasks.size();
     }
 
-    public void editTeamTask(Long taskId,
-                             Task editedTask,
-                             String authUserEmail) {
-        Task task = taskRepository.findById(taskId).orElseThrow(
-                () -> new TaskNotFoundException("Task not found")
+    /* Filtering by owner, ordering and paging are done by database,
+    tasks of the other team members are never loaded */
+    public TaskPage listAllTasksOfTeamMember(String providedUserEmail,
+                                             Long teamId,
+                                             String cursor,
+                                             int size) {
+        User providedUser = userRepository.findByEmail(providedUserEmail).orElseThrow(
+                () -> new UsernameNotFoundException("User " + providedUserEmail + " not found")
         );
 
-        Team team = teamRepository.findByTaskId(taskId).orElseThrow(
-                () -> new TeamNotFoundException("Team not found")
+        if (!teamRepository.existsById(teamId)) {
+            throw new TeamNotFoundException("Team not found");
+        }
+
+        int pageSize = TaskPage.pageSize(size);
+        List<TaskSummaryDTO> tasks = fetchTeamTasksPage(teamId, providedUser.getId(), cursor, pageSize);
+
+        return TaskPage.of(tasks, pageSize);
+    }
+
+    public StreamingResponseBody exportTasksOfTeamMember(String providedUserEmail,
+                                                         Long teamId,
+                                                         TaskExportFormat format) {
+        User providedUser = userRepository.findByEmail(providedUserEmail).orElseThrow(
+                () -> new UsernameNotFoundException("User " + providedUserEmail + " not found")
         );
 
-        User authUser = userRepository.findByEmail(authUserEmail).get();
+        if (!teamRepository.existsById(teamId)) {
+            throw new TeamNotFoundException("Team not found");
+        }
 
-        if (!team.getAdmins().contains(authUser)) {
+        return taskExportService.exportTeamTasks(teamId, providedUser.getId(), format);
+    }
+
+    public void editTeamTask(Long taskId,
+                             Task editedTask,
+                             UserPrincipal authUser) {
+        TeamTaskAccess access = findTeamTaskAccess(taskId, authUser.getId());
+
+        if (!access.isAdmin()) {
             throw new NoPermissionException("No permission");
         }
 
+        Task task = access.getTask();
+
         task.setName(editedTask.getName());
         task.setDescription(editedTask.getDescription());
         task.setPriority(editedTask.getPriority());
@@ -231,42 +265,33 @@ public class TeamService {
 
         taskRepository.save(task);
 
+        deadlineScheduler.schedule(task);
     }
 
-    public void deleteTaskFromTeamMember(String username,
+    public void deleteTaskFromTeamMember(UserPrincipal authUser,
                                          Long taskId) {
-        User providedUser = userRepository.findByEmail(username).orElseThrow(
-                () -> new UsernameNotFoundException("User " + username + " not found")
-        );
-
-        Task task = taskRepository.findById(taskId).orElseThrow(
-                () -> new TaskNotFoundException("Task not found")
-        );
+        TeamTaskAccess access = findTeamTaskAccess(taskId, authUser.getId());
 
-        Team team = teamRepository.findByTaskId(task.getId()).orElseThrow(
-                () -> new TeamNotFoundException("Team not found")
-        );
+        if (!access.isMember()) {
+            throw new UsernameNotFoundException("User does not belong to this team");
+        }
 
-        checkAccess(providedUser, providedUser, team);
+        if (!access.isAdmin()) {
+            throw new NoPermissionException("You have no permission");
+        }
 
+        Task task = access.getTask();
         task.setProgress(TaskProgress.CLOSED);
         taskRepository.save(task);
     }
 
     public void changeTeamTaskProgress(Long taskId,
                                        TaskProgress taskProgress,
-                                       String authUserEmail) {
-        Task task = taskRepository.findById(taskId).orElseThrow(
-                () -> new TaskNotFoundException("Task not found")
-        );
+                                       UserPrincipal authUser) {
+        TeamTaskAccess access = findTeamTaskAccess(taskId, authUser.getId());
+        Task task = access.getTask();
 
-        Team team = teamRepository.findByTaskId(taskId).orElseThrow(
-                () -> new TeamNotFoundException("Team not found")
-        );
-
-        User authUser = userRepository.findByEmail(authUserEmail).get();
-
-        if (!task.getOwner().equals(authUser) && !team.getAdmins().contains(authUser)) {
+        if (!Objects.equals(task.getOwner().getId(), authUser.getId()) && !access.isAdmin()) {
             throw new NoPermissionException("No permission");
         }
 
@@ -274,63 +299,136 @@ public class TeamService {
         taskRepository.save(task);
     }
 
-    private void checkAccess(User authUser, User providedUser, Team team) {
-        if (!team.getMembers().contains(providedUser)) {
+    // One round trip instead of loading the task, its team and the role separately
+    private TeamTaskAccess findTeamTaskAccess(Long taskId, Long userId) {
+        TeamTaskAccess access = teamRepository.findTaskAccess(taskId, userId).orElseThrow(
+                () -> new TaskNotFoundException("Task not found")
+        );
+
+        if (access.getTeamId() == null) {
+            throw new TeamNotFoundException("Team not found");
+        }
+        return access;
+    }
+
+    private void checkAccess(Long authUserId, Long providedUserId, Team team) {
+        if (!isMember(team, providedUserId)) {
             throw new UsernameNotFoundException("User does not belong to this team");
         }
 
-        if (!team.getAdmins().contains(authUser)) {
+        if (!isAdmin(team, authUserId)) {
             throw new NoPermissionException("You have no permission");
         }
     }
 
+    private boolean isOwner(Team team, Long userId) {
+        return Objects.equals(team.getOwner().getId(), userId);
+    }
 
-    private void sortListOfTasks(List<Task> tasks) {
-        tasks.sort(Comparator.comparing(
-                        Task::getPriority).reversed()
-                .thenComparing(
-                        Task::getToDateTime).reversed()
-                .thenComparing(
-                        Task::getFromDateTime).reversed()
-                .thenComparing(
-                        Task::getProgress));
+    private boolean isAdmin(Team team, Long userId) {
+        return teamMembershipRepository.existsByTeamIdAndUserIdAndRoleIn(team.getId(), userId, ADMIN_ROLES);
     }
 
-    private void createTeamJoinRequest(User providedUser, Team team) {
-        TeamJoinRequest teamJoinRequest = TeamJoinRequest.builder()
-                .user(providedUser)
+    private boolean isMember(Team team, Long userId) {
+        return teamMembershipRepository.existsByTeamIdAndUserId(team.getId(), userId);
+    }
+
+    private List<TeamMember> findAssignees(Team team, TeamTaskAssignment assignment) {
+        if (assignment.isWholeTeam()) {
+            return teamMembershipRepository.findMembersByTeamId(team.getId());
+        }
+
+        if (assignment.getUserEmails() == null || assignment.getUserEmails().isEmpty()) {
+            throw new IllegalArgumentException("No members selected");
+        }
+
+        Set<String> emails = new LinkedHashSet<>(assignment.getUserEmails());
+        List<TeamMember> members = teamMembershipRepository.findMembersByTeamIdAndEmails(team.getId(), emails);
+        if (members.size() < emails.size()) {
+            members.forEach(member -> emails.remove(member.getEmail()));
+            throw new UsernameNotFoundException("Users " + emails + " do not belong to this team");
+        }
+        return members;
+    }
+
+    private Task copyTask(Task template, Team team, Long ownerId) {
+        return Task.builder()
+                .name(template.getName())
+                .description(template.getDescription())
+                .fromDateTime(template.getFromDateTime())
+                .toDateTime(template.getToDateTime())
+                .priority(template.getPriority())
+                .progress(template.getProgress())
+                .owner(userRepository.getReferenceById(ownerId))
                 .team(team)
                 .build();
+    }
 
-        teamJoinRequestRepository.save(teamJoinRequest);
+    private void addMembership(Team team, User user, TeamRole role) {
+        TeamMembership membership = TeamMembership.builder()
+                .team(team)
+                .user(user)
+                .role(role)
+                .build();
+
+        teamMembershipRepository.save(membership);
     }
 
-    private String generateJoinCodeIfUnique() {
-        String generatedJoinCode = null;
-        boolean isJoinCodeAvailable = false;
 
-        while (!isJoinCodeAvailable) {
-            generatedJoinCode = UUID.randomUUID().toString().replace("-", "").substring(0, 6);
-            isJoinCodeAvailable = joinCodeIsAvailable(generatedJoinCode);
+    private List<TaskSummaryDTO> fetchTeamTasksPage(Long teamId,
+                                                    Long ownerId,
+                                                    String cursor,
+                                                    int pageSize) {
+        // One extra row is fetched to find out whether next page exists
+        Pageable limit = PageRequest.of(0, pageSize + 1);
+
+        if (cursor == null || cursor.isBlank()) {
+            return taskRepository.findTeamPageByOwnerId(teamId, ownerId, limit);
         }
-        return generatedJoinCode;
+
+        TaskCursor after = TaskCursor.decode(cursor);
+        return taskRepository.findTeamPageByOwnerIdAfter(teamId,
+                ownerId,
+                after.getSortKey(),
+                after.getId(),
+                limit);
+    }
+
+    private void createTeamJoinRequest(User providedUser, Team team) {
+        TeamJoinRequest teamJoinRequest = TeamJoinRequest.builder()
+                .user(providedUser)
+                .team(team)
+                .build();
+
+        teamJoinRequestRepository.save(teamJoinRequest);
     }
 
-    private void generateTeam(Team team, User providedUser, String generatedJoinCode) {
-        team.setJoinCode(generatedJoinCode);
+    private void generateTeam(Team team, User providedUser) {
         team.setOwner(providedUser);
-        team.getAdmins().add(providedUser);
-        team.getMembers().add(providedUser);
         team.setNumberOfMembers(1);
-        teamRepository.save(team);
+        saveWithNewJoinCode(team);
+
+        addMembership(team, providedUser, TeamRole.ADMIN);
     }
 
-    private boolean joinCodeIsAvailable(String generatedJoinCode) {
-        return teamRepository.findByJoinCode(generatedJoinCode).isEmpty();
+    /* Allocated codes never repeat each other, the unique constraint can
+    only be hit by one of the random codes given out before the allocator */
+    private void saveWithNewJoinCode(Team team) {
+        for (int attempt = 1; ; attempt++) {
+            team.setJoinCode(joinCodeAllocator.allocate());
+            try {
+                teamRepository.save(team);
+                return;
+            } catch (DataIntegrityViolationException e) {
+                if (attempt == JOIN_CODE_ATTEMPTS) {
+                    throw e;
+                }
+            }
+        }
     }
 
-    private void checkRequest(User providedUser, Team team) {
-        if (team.getMembers().contains(providedUser)) {
+    private void checkRequest(UserPrincipal providedUser, Team team) {
+        if (isMember(team, providedUser.getId())) {
             throw new UserAlreadyExistsException("You are already in this team");
         }
 
@@ -340,14 +438,13 @@ public class TeamService {
     }
 
     private String generateResultOfTryToJoin(String joinCode,
-                                             String userEmail,
-                                             User providedUser,
+                                             UserPrincipal providedUser,
                                              Team team) {
         if (team.getType().equals(TeamType.PUBLIC)) {
-            addUserToTeam(joinCode, userEmail, team.getOwner().getEmail());
+            addUserToTeam(joinCode, providedUser.getEmail(), UserPrincipal.from(team.getOwner()));
             return "join";
         } else {
-            createTeamJoinRequest(providedUser, team);
+            createTeamJoinRequest(userRepository.getReferenceById(providedUser.getId()), team);
             return "request";
         }
     }
@@ -0,0 +1,25 @@
+package com.olekhv.taskmanager.team;
+
+import com.olekhv.taskmanager.task.Task;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/* Everything the permission checks of team task mutations need,
+selected by TeamRepository.findTaskAccess */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class TeamTaskAccess {
+    private Task task;
+    private Long teamId;
+    private TeamRole role;
+
+    public boolean isMember() {
+        return role != null;
+    }
+
+    public boolean isAdmin() {
+        return role != null && TeamService.ADMIN_ROLES.contains(role);
+    }
+}
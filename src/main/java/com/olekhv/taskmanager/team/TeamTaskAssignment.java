@@ -0,0 +1,22 @@
+package com.olekhv.taskmanager.team;
+
+import com.olekhv.taskmanager.task.Task;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class TeamTaskAssignment {
+    // Every member gets own copy of this task
+    private Task task;
+    @Builder.Default
+    private List<String> userEmails = new ArrayList<>();
+    private boolean wholeTeam;
+}
@@ -0,0 +1,41 @@
+package com.olekhv.taskmanager.team;
+
+import com.olekhv.taskmanager.config.SchemaTables;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+/* Fills task.team_id from the old team_tasks join table, then retires
+the legacy table, so it is scanned only once. Runs before the web
+server accepts requests, so team task queries never miss a task.
+If the rename fails, the next start skips tasks that have a team */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class TeamTaskMigration implements SmartInitializingSingleton {
+
+    private static final String LEGACY_TEAM_TASKS_TABLE = "team_tasks";
+
+    private static final String COPY_TEAM_IDS = """
+            UPDATE task
+            SET team_id = (SELECT MIN(tt.team_id) FROM team_tasks tt WHERE tt.tasks_id = task.id)
+            WHERE team_id IS NULL
+              AND EXISTS (SELECT 1 FROM team_tasks tt WHERE tt.tasks_id = task.id)
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final SchemaTables schemaTables;
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        if (!schemaTables.exists(LEGACY_TEAM_TASKS_TABLE)) {
+            return;
+        }
+
+        int copied = jdbcTemplate.update(COPY_TEAM_IDS);
+        schemaTables.retire(LEGACY_TEAM_TASKS_TABLE);
+        log.info("Linked {} tasks to their teams from legacy table", copied);
+    }
+}
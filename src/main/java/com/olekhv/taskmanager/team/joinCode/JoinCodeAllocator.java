@@ -0,0 +1,133 @@
+package com.olekhv.taskmanager.team.joinCode;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.HexFormat;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.IntToLongFunction;
+
+/* Hands out join codes without looking for free ones. Every code comes
+from a distinct value of a database sequence, reserved blockSize values
+at a time, so instances never share a value and most calls do not touch
+the database. The value is put through a keyed 24 bit Feistel permutation
+and written as 6 hex characters. A permutation never maps two values to
+the same code, so codes are unique while consecutive teams still get
+unrelated looking codes.
+
+The key must not be changed once codes were issued, codes of the new
+key could repeat the old ones */
+@Component
+public class JoinCodeAllocator {
+
+    static final int CODE_BITS = 24;
+    static final long CAPACITY = 1L << CODE_BITS;
+
+    private static final int HALF_BITS = CODE_BITS / 2;
+    private static final int HALF_MASK = (1 << HALF_BITS) - 1;
+    private static final int ROUNDS = 4;
+    private static final int SEQUENCE_ID = 1;
+    private static final HexFormat HEX = HexFormat.of();
+
+    // Reserves the given number of values and returns the first one
+    private final IntToLongFunction blocks;
+    private final long key;
+    private final int blockSize;
+
+    // Not synchronized, a virtual thread would stay pinned while a block is reserved
+    private final ReentrantLock lock = new ReentrantLock();
+
+    // Guarded by lock
+    private long next;
+    private long blockEnd;
+
+    @Autowired
+    public JoinCodeAllocator(JoinCodeSequenceRepository sequenceRepository,
+                             PlatformTransactionManager transactionManager,
+                             @Value("${application.teams.join-code.key:6364136223846793005}") long key,
+                             @Value("${application.teams.join-code.block-size:100}") int blockSize) {
+        this(databaseBlocks(sequenceRepository, transactionManager), key, blockSize);
+    }
+
+    JoinCodeAllocator(IntToLongFunction blocks, long key, int blockSize) {
+        if (blockSize <= 0) {
+            throw new IllegalArgumentException("Block size must be positive");
+        }
+        this.blocks = blocks;
+        this.key = key;
+        this.blockSize = blockSize;
+    }
+
+    public String allocate() {
+        long value;
+        lock.lock();
+        try {
+            if (next == blockEnd) {
+                next = blocks.applyAsLong(blockSize);
+                blockEnd = next + blockSize;
+            }
+            value = next++;
+        } finally {
+            lock.unlock();
+        }
+
+        if (value >= CAPACITY) {
+            throw new IllegalStateException("No join codes left");
+        }
+        return HEX.toHexDigits(permute((int) value, key)).substring(2);
+    }
+
+    // Bijection on [0, CAPACITY)
+    static int permute(int value, long key) {
+        int left = value >>> HALF_BITS;
+        int right = value & HALF_MASK;
+
+        for (int round = 0; round < ROUNDS; round++) {
+            int roundKey = (int) (key >>> (round * 16));
+            int mixed = left ^ mix(right, roundKey);
+            left = right;
+            right = mixed;
+        }
+        return (left << HALF_BITS) | right;
+    }
+
+    private static int mix(int half, int roundKey) {
+        int h = half * 0x9E3779B1 + roundKey;
+        h ^= h >>> 15;
+        h *= 0x85EBCA6B;
+        h ^= h >>> 13;
+        return h & HALF_MASK;
+    }
+
+    /* Moves the sequence row in its own short transaction under a row lock,
+    so concurrent reservations from other instances wait for each other */
+    private static IntToLongFunction databaseBlocks(JoinCodeSequenceRepository sequenceRepository,
+                                                    PlatformTransactionManager transactionManager) {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+
+        return size -> {
+            try {
+                return transactionTemplate.execute(status -> reserve(sequenceRepository, size));
+            } catch (DataIntegrityViolationException e) {
+                // Another instance created the sequence row at the same time
+                return transactionTemplate.execute(status -> reserve(sequenceRepository, size));
+            }
+        };
+    }
+
+    private static long reserve(JoinCodeSequenceRepository sequenceRepository, int size) {
+        JoinCodeSequence sequence = sequenceRepository.findForUpdate(SEQUENCE_ID)
+                .orElseGet(() -> new JoinCodeSequence(SEQUENCE_ID, 0L));
+
+        long start = sequence.getNextValue();
+        sequence.setNextValue(start + size);
+        sequenceRepository.saveAndFlush(sequence);
+        return start;
+    }
+}
@@ -0,0 +1,22 @@
+package com.olekhv.taskmanager.team.joinCode;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+// Single row holding the next unreserved value of JoinCodeAllocator
+@Entity
+@Table(name = "join_code_sequence")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class JoinCodeSequence {
+    @Id
+    private Integer id;
+    private Long nextValue;
+}
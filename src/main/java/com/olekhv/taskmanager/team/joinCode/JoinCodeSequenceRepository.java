@@ -0,0 +1,17 @@
+package com.olekhv.taskmanager.team.joinCode;
+
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Optional;
+
+@Repository
+public interface JoinCodeSequenceRepository extends JpaRepository<JoinCodeSequence, Integer> {
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT s FROM JoinCodeSequence s WHERE s.id = :id")
+    Optional<JoinCodeSequence> findForUpdate(@Param("id") Integer id);
+}
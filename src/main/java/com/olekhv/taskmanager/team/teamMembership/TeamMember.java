@@ -0,0 +1,7 @@
+package com.olekhv.taskmanager.team.teamMembership;
+
+public interface TeamMember {
+    Long getUserId();
+
+    String getEmail();
+}
@@ -0,0 +1,40 @@
+package com.olekhv.taskmanager.team.teamMembership;
+
+import com.olekhv.taskmanager.team.Team;
+import com.olekhv.taskmanager.team.TeamRole;
+import com.olekhv.taskmanager.user.User;
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/* One row per (team, user). The unique key doubles as the index
+behind every membership and admin check, so none of them
+has to load the member list of a team */
+@Entity
+@Table(name = "team_membership",
+        uniqueConstraints = @UniqueConstraint(name = "uk_team_membership_team_user", columnNames = {"team_id", "user_id"}),
+        indexes = @Index(name = "idx_team_membership_user", columnList = "user_id"))
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class TeamMembership {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "id", nullable = false)
+    private Long id;
+
+    @ManyToOne(fetch = FetchType.LAZY, optional = false)
+    @JoinColumn(name = "team_id", nullable = false)
+    private Team team;
+
+    @ManyToOne(fetch = FetchType.LAZY, optional = false)
+    @JoinColumn(name = "user_id", nullable = false)
+    private User user;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 16)
+    private TeamRole role;
+}
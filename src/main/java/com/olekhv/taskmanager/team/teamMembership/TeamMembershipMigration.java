@@ -0,0 +1,56 @@
+package com.olekhv.taskmanager.team.teamMembership;
+
+import com.olekhv.taskmanager.config.SchemaTables;
+import jakarta.persistence.EntityManagerFactory;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.SessionFactory;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+/* Copies memberships from the old team_members / team_admins join tables
+into team_membership, then retires the legacy tables, so the copy
+happens once and members removed afterwards are never brought back.
+Runs before the web server accepts requests, so membership checks
+never see a half filled table. If the rename fails after the copy,
+the next start copies again and skips rows that are already there */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class TeamMembershipMigration implements SmartInitializingSingleton {
+
+    private static final String LEGACY_MEMBERS_TABLE = "team_members";
+    private static final String LEGACY_ADMINS_TABLE = "team_admins";
+
+    private static final String COPY_MEMBERS = """
+            INSERT INTO team_membership (team_id, user_id, role)
+            SELECT tm.team_id, tm.members_id,
+                   CASE WHEN EXISTS (SELECT 1 FROM team_admins ta
+                                     WHERE ta.team_id = tm.team_id AND ta.admins_id = tm.members_id)
+                        THEN 'ADMIN' ELSE 'MEMBER' END
+            FROM (SELECT DISTINCT team_id, members_id FROM team_members) tm
+            WHERE NOT EXISTS (SELECT 1 FROM team_membership m
+                              WHERE m.team_id = tm.team_id AND m.user_id = tm.members_id)
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final SchemaTables schemaTables;
+    private final EntityManagerFactory entityManagerFactory;
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        if (!schemaTables.exists(LEGACY_MEMBERS_TABLE) || !schemaTables.exists(LEGACY_ADMINS_TABLE)) {
+            return;
+        }
+
+        int copied = jdbcTemplate.update(COPY_MEMBERS);
+        // Written behind Hibernate, so cached role checks aren't invalidated by it
+        entityManagerFactory.unwrap(SessionFactory.class).getCache()
+                .evictQueryRegion(TeamMembershipRepository.ROLES_CACHE_REGION);
+        // Without team_admins the copy is never attempted again
+        schemaTables.retire(LEGACY_ADMINS_TABLE);
+        schemaTables.retire(LEGACY_MEMBERS_TABLE);
+        log.info("Copied {} team memberships from legacy tables", copied);
+    }
+}
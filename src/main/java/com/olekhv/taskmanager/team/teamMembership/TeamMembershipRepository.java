@@ -0,0 +1,59 @@
+package com.olekhv.taskmanager.team.teamMembership;
+
+import com.olekhv.taskmanager.team.TeamRole;
+import jakarta.persistence.QueryHint;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Collection;
+import java.util.List;
+
+import static org.hibernate.jpa.HibernateHints.HINT_CACHEABLE;
+import static org.hibernate.jpa.HibernateHints.HINT_CACHE_REGION;
+
+@Repository
+public interface TeamMembershipRepository extends JpaRepository<TeamMembership, Long> {
+    String ROLES_CACHE_REGION = "team-roles";
+
+    /* Membership checks are cached, Hibernate drops the cached results
+    on every insert, update or delete of team_membership made through it.
+    Other instances only drop theirs when the region expires them, see
+    team-roles in application.conf. Plain SQL writes have to evict it */
+    @QueryHints({
+            @QueryHint(name = HINT_CACHEABLE, value = "true"),
+            @QueryHint(name = HINT_CACHE_REGION, value = ROLES_CACHE_REGION)
+    })
+    boolean existsByTeamIdAndUserId(Long teamId, Long userId);
+
+    @QueryHints({
+            @QueryHint(name = HINT_CACHEABLE, value = "true"),
+            @QueryHint(name = HINT_CACHE_REGION, value = ROLES_CACHE_REGION)
+    })
+    boolean existsByTeamIdAndUserIdAndRoleIn(Long teamId, Long userId, Collection<TeamRole> roles);
+
+    @Query("SELECT m.user.id AS userId, m.user.email AS email FROM TeamMembership m WHERE m.team.id = :teamId")
+    List<TeamMember> findMembersByTeamId(@Param("teamId") Long teamId);
+
+    @Query("SELECT m.user.id AS userId, m.user.email AS email FROM TeamMembership m " +
+            "WHERE m.team.id = :teamId AND m.user.email IN :emails")
+    List<TeamMember> findMembersByTeamIdAndEmails(@Param("teamId") Long teamId,
+                                                  @Param("emails") Collection<String> emails);
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE TeamMembership m SET m.role = :role WHERE m.team.id = :teamId AND m.user.id = :userId")
+    int updateRole(@Param("teamId") Long teamId,
+                   @Param("userId") Long userId,
+                   @Param("role") TeamRole role);
+
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM TeamMembership m WHERE m.team.id = :teamId AND m.user.id = :userId")
+    int deleteByTeamIdAndUserId(@Param("teamId") Long teamId,
+                                @Param("userId") Long userId);
+}
@@ -0,0 +1,82 @@
+package com.olekhv.taskmanager.token;
+
+import com.olekhv.taskmanager.config.VerifiedClaims;
+import com.olekhv.taskmanager.user.User;
+import com.olekhv.taskmanager.user.UserPrincipal;
+import com.olekhv.taskmanager.user.UserRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+/* Tokens carry the token epoch of their user. Revoking bumps the epoch,
+which invalidates every token issued before at once, so nothing is
+stored per token and validation compares the claim with the epoch
+cached per user. Tokens of deleted users have no epoch to match and
+are rejected. Single tokens can't be revoked, logout ends all
+sessions of the user. Epochs are cached for a shorter time than
+principals, other instances see a bump once the entry expires,
+after application.security.token-epoch-cache.ttl at most */
+@Component
+@ConditionalOnProperty(name = "application.security.token-revocation", havingValue = "epoch")
+public class EpochTokenRevocation implements TokenRevocationStrategy {
+
+    static final String EPOCH_CLAIM = "epoch";
+
+    private final UserRepository userRepository;
+    private final Cache<Long, Long> epochs;
+
+    public EpochTokenRevocation(UserRepository userRepository,
+                                MeterRegistry meterRegistry,
+                                @Value("${application.security.token-epoch-cache.max-size:10000}") long maxSize,
+                                @Value("${application.security.token-epoch-cache.ttl:60000}") long ttlMillis) {
+        this.userRepository = userRepository;
+        this.epochs = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(Duration.ofMillis(ttlMillis))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, epochs, "user.token.epoch");
+    }
+
+    @Override
+    public Map<String, Object> claimsFor(User user) {
+        Map<String, Object> claims = new HashMap<>();
+        claims.put(EPOCH_CLAIM, user.getTokenEpoch());
+        return claims;
+    }
+
+    @Override
+    public void tokenIssued(User user, String jwt) {
+        // Nothing to store
+    }
+
+    @Override
+    public boolean isActive(String jwt, String digest, VerifiedClaims claims, UserPrincipal principal) {
+        Long epoch = claims.get(body -> body.get(EPOCH_CLAIM, Long.class));
+        return epoch != null && epoch.equals(epochs.get(principal.getId(),
+                id -> userRepository.findTokenEpochById(id).orElse(null)));
+    }
+
+    @Override
+    public void revoke(String jwt, VerifiedClaims claims) {
+        userRepository.findByEmail(claims.getSubject()).ifPresent(this::revokeAll);
+    }
+
+    @Override
+    public void revokeAll(User user) {
+        userRepository.incrementTokenEpoch(user.getId());
+        // Read back, a concurrent login may have bumped it as well
+        userRepository.findTokenEpochById(user.getId()).ifPresentOrElse(epoch -> {
+            user.setTokenEpoch(epoch);
+            epochs.put(user.getId(), epoch);
+        }, () -> epochs.invalidate(user.getId()));
+    }
+}
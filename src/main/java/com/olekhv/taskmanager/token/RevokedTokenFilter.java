@@ -0,0 +1,165 @@
+package com.olekhv.taskmanager.token;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.ToDoubleFunction;
+import java.util.stream.Stream;
+
+/* Bloom filter of revoked tokens that can still pass JWT validation.
+A token that is not in the filter is certainly not revoked and its
+row doesn't have to be read, only probable hits go to the table.
+Revocations of this instance are added right away, the ones of other
+instances on the next refresh. Tokens drop out when the filter is
+rebuilt after they expire */
+@Component
+@ConditionalOnProperty(name = "application.security.token-revocation", havingValue = "table", matchIfMissing = true)
+@Slf4j
+public class RevokedTokenFilter {
+
+    // Revocations committed this long after their timestamp are still picked up
+    private static final Duration REFRESH_OVERLAP = Duration.ofSeconds(30);
+
+    private final TokenRepository tokenRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final boolean enabled;
+    private final long expectedRevocations;
+    private final double falsePositiveRate;
+    private final Timer rebuildTime;
+    private final ReentrantLock lock = new ReentrantLock();
+
+    // Null until loaded, every token is a probable hit until then
+    private volatile TokenBloomFilter filter;
+
+    // Guarded by lock
+    private LocalDateTime refreshedAt;
+
+    public RevokedTokenFilter(TokenRepository tokenRepository,
+                              PlatformTransactionManager transactionManager,
+                              MeterRegistry meterRegistry,
+                              @Value("${application.security.revoked-token-filter.enabled:false}") boolean enabled,
+                              @Value("${application.security.revoked-token-filter.expected-revocations:1000000}") long expectedRevocations,
+                              @Value("${application.security.revoked-token-filter.false-positive-rate:0.01}") double falsePositiveRate) {
+        this.tokenRepository = tokenRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setReadOnly(true);
+        this.enabled = enabled;
+        this.expectedRevocations = expectedRevocations;
+        this.falsePositiveRate = falsePositiveRate;
+        this.rebuildTime = Timer.builder("tokens.revoked.filter.rebuild")
+                .description("Time to load revoked tokens into a new filter")
+                .register(meterRegistry);
+        Gauge.builder("tokens.revoked.filter.entries", this, f -> f.stats(TokenBloomFilter::insertions))
+                .description("Revoked tokens added to the filter")
+                .register(meterRegistry);
+        Gauge.builder("tokens.revoked.filter.false.positive.rate", this,
+                        f -> f.stats(TokenBloomFilter::expectedFalsePositiveRate))
+                .description("Expected share of active tokens that are checked against the table")
+                .register(meterRegistry);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        rebuild();
+    }
+
+    @Scheduled(fixedDelayString = "${application.security.revoked-token-filter.rebuild-interval:3600000}",
+            initialDelayString = "${application.security.revoked-token-filter.rebuild-interval:3600000}")
+    public void rebuild() {
+        if (!enabled) {
+            return;
+        }
+        LocalDateTime startedAt = LocalDateTime.now();
+        TokenBloomFilter rebuilt = rebuildTime.record(() -> build(startedAt));
+
+        lock.lock();
+        try {
+            // Revocations committed while the filter was built, local ones included
+            addRevokedSince(rebuilt, startedAt.minus(REFRESH_OVERLAP));
+            filter = rebuilt;
+            refreshedAt = startedAt;
+        } finally {
+            lock.unlock();
+        }
+        log.info("Loaded {} revoked tokens into a filter of {} KiB",
+                rebuilt.insertions(), rebuilt.memoryBytes() / 1024);
+    }
+
+    @Scheduled(fixedDelayString = "${application.security.revoked-token-filter.refresh-interval:60000}")
+    public void refresh() {
+        LocalDateTime startedAt = LocalDateTime.now();
+        lock.lock();
+        try {
+            if (filter == null) {
+                return;
+            }
+            addRevokedSince(filter, refreshedAt.minus(REFRESH_OVERLAP));
+            refreshedAt = startedAt;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /* Has to be called after the revocation is committed,
+    otherwise a concurrent rebuild may miss it */
+    public void add(String jwt) {
+        addAll(List.of(jwt));
+    }
+
+    public void addAll(Collection<String> jwts) {
+        lock.lock();
+        try {
+            if (filter == null) {
+                return;
+            }
+            jwts.forEach(jwt -> filter.put(TokenDigest.sha256(jwt)));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public boolean isLoaded() {
+        return filter != null;
+    }
+
+    public boolean mightBeRevoked(String digest) {
+        TokenBloomFilter current = filter;
+        return current == null || current.mightContain(digest);
+    }
+
+    private TokenBloomFilter build(LocalDateTime now) {
+        return transactionTemplate.execute(status -> {
+            long revoked = tokenRepository.countRevokedTokens(now);
+            TokenBloomFilter rebuilt = TokenBloomFilter.create(Math.max(expectedRevocations, revoked), falsePositiveRate);
+            try (Stream<String> tokens = tokenRepository.streamRevokedTokens(now)) {
+                tokens.forEach(jwt -> rebuilt.put(TokenDigest.sha256(jwt)));
+            }
+            return rebuilt;
+        });
+    }
+
+    private void addRevokedSince(TokenBloomFilter target, LocalDateTime since) {
+        tokenRepository.findTokensRevokedSince(since)
+                .forEach(jwt -> target.put(TokenDigest.sha256(jwt)));
+    }
+
+    private double stats(ToDoubleFunction<TokenBloomFilter> stat) {
+        TokenBloomFilter current = filter;
+        return current == null ? 0 : stat.applyAsDouble(current);
+    }
+}
@@ -0,0 +1,84 @@
+package com.olekhv.taskmanager.token;
+
+import com.olekhv.taskmanager.config.JwtService;
+import com.olekhv.taskmanager.config.VerifiedClaims;
+import com.olekhv.taskmanager.exception.TokenNotFoundException;
+import com.olekhv.taskmanager.user.User;
+import com.olekhv.taskmanager.user.UserPrincipal;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.HashMap;
+import java.util.Map;
+
+/* Default mode: a row per issued token, single tokens can be revoked.
+Tokens that RevokedTokenFilter rules out are active without a lookup,
+other status lookups go through TokenStatusCache */
+@Component
+@ConditionalOnProperty(name = "application.security.token-revocation", havingValue = "table", matchIfMissing = true)
+@RequiredArgsConstructor
+public class TableTokenRevocation implements TokenRevocationStrategy {
+
+    private final TokenRepository tokenRepository;
+    private final TokenStatusCache tokenStatusCache;
+    private final JwtService jwtService;
+    private final RevokedTokenFilter revokedTokenFilter;
+
+    @Override
+    public Map<String, Object> claimsFor(User user) {
+        return new HashMap<>();
+    }
+
+    @Override
+    public void tokenIssued(User user, String jwt) {
+        Token token = Token.builder()
+                .user(user)
+                .token(jwt)
+                .tokenType(TokenType.BEARER)
+                .expired(false)
+                .revoked(false)
+                .expiresAt(LocalDateTime.ofInstant(jwtService.verify(jwt).getExpiration().toInstant(), ZoneId.systemDefault()))
+                .build();
+        tokenRepository.save(token);
+    }
+
+    @Override
+    public boolean isActive(String jwt, String digest, VerifiedClaims claims, UserPrincipal principal) {
+        if (!revokedTokenFilter.mightBeRevoked(digest)) {
+            return true;
+        }
+        return tokenStatusCache.get(digest,
+                        () -> tokenRepository.findByToken(jwt)
+                                .map(TokenStatus::of)
+                                .orElse(TokenStatus.UNKNOWN))
+                .isActive();
+    }
+
+    @Override
+    public void revoke(String jwt, VerifiedClaims claims) {
+        Token storedToken = tokenRepository.findByToken(jwt)
+                .orElseThrow(
+                        () -> new TokenNotFoundException("Token " + jwt + " does not exists")
+                );
+        storedToken.setExpired(true);
+        storedToken.setRevoked(true);
+        storedToken.setRevokedAt(LocalDateTime.now());
+        tokenRepository.save(storedToken);
+        revokedTokenFilter.add(jwt);
+        tokenStatusCache.invalidate(TokenDigest.sha256(jwt));
+    }
+
+    @Override
+    public void revokeAll(User user) {
+        LocalDateTime now = LocalDateTime.now();
+        if (tokenRepository.revokeAllByUserId(user.getId(), now) > 0) {
+            if (revokedTokenFilter.isLoaded()) {
+                revokedTokenFilter.addAll(tokenRepository.findRevokedTokensByUserId(user.getId(), now));
+            }
+            tokenStatusCache.invalidateUser(user.getId());
+        }
+    }
+}
@@ -7,7 +7,13 @@ import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
+import java.time.LocalDateTime;
+
 @Entity
+@Table(indexes = {
+        @Index(name = "idx_token_user_revoked", columnList = "user_id, revoked"),
+        @Index(name = "idx_token_revoked_at", columnList = "revokedAt")
+})
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -27,6 +33,12 @@ public class Token {
 
     private boolean expired;
 
+    // Lets other instances pick up revocations made since their last refresh
+    private LocalDateTime revokedAt;
+
+    // Expiration of the JWT itself, the row can be purged after it
+    private LocalDateTime expiresAt;
+
     @ManyToOne
     @JoinColumn(name="user_id", referencedColumnName = "id")
     private User user;
@@ -0,0 +1,95 @@
+package com.olekhv.taskmanager.token;
+
+import java.util.HexFormat;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/* Bloom filter over SHA-256 hex token digests. The digest is already
+uniform, so its first two words are used as the two hashes of double
+hashing instead of hashing it again. Safe for concurrent use, additions
+never block lookups. Entries can't be removed, the filter is rebuilt instead */
+final class TokenBloomFilter {
+
+    private static final double LN2 = Math.log(2);
+    private static final int HEX_DIGITS_PER_WORD = 16;
+
+    private final AtomicLongArray words;
+    private final long bitCount;
+    private final int hashCount;
+    private final AtomicLong insertions = new AtomicLong();
+
+    private TokenBloomFilter(long bitCount, int hashCount) {
+        long wordCount = (bitCount + Long.SIZE - 1) / Long.SIZE;
+        if (wordCount > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Bloom filter of " + bitCount + " bits is too large");
+        }
+        this.words = new AtomicLongArray((int) wordCount);
+        this.bitCount = wordCount * Long.SIZE;
+        this.hashCount = hashCount;
+    }
+
+    /* m = -n ln p / (ln 2)^2 bits and k = m / n ln 2 hashes */
+    static TokenBloomFilter create(long expectedInsertions, double falsePositiveRate) {
+        if (falsePositiveRate <= 0 || falsePositiveRate >= 1) {
+            throw new IllegalArgumentException("False positive rate must be between 0 and 1");
+        }
+        long n = Math.max(1, expectedInsertions);
+        long bits = Math.max(Long.SIZE, (long) Math.ceil(-n * Math.log(falsePositiveRate) / (LN2 * LN2)));
+        int hashes = Math.max(1, (int) Math.round((double) bits / n * LN2));
+        return new TokenBloomFilter(bits, hashes);
+    }
+
+    void put(String digest) {
+        long hash1 = hash(digest, 0);
+        long hash2 = hash(digest, 1) | 1;
+        for (int i = 0; i < hashCount; i++) {
+            long bit = Math.floorMod(hash1 + i * hash2, bitCount);
+            long mask = 1L << bit;
+            int word = (int) (bit >>> 6);
+            if ((words.get(word) & mask) == 0) {
+                words.accumulateAndGet(word, mask, (current, set) -> current | set);
+            }
+        }
+        insertions.incrementAndGet();
+    }
+
+    boolean mightContain(String digest) {
+        long hash1 = hash(digest, 0);
+        long hash2 = hash(digest, 1) | 1;
+        for (int i = 0; i < hashCount; i++) {
+            long bit = Math.floorMod(hash1 + i * hash2, bitCount);
+            if ((words.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Additions, a digest added twice is counted twice
+    long insertions() {
+        return insertions.get();
+    }
+
+    long bitCount() {
+        return bitCount;
+    }
+
+    int hashCount() {
+        return hashCount;
+    }
+
+    long memoryBytes() {
+        return (long) words.length() * Long.BYTES;
+    }
+
+    /* (1 - e^(-kn/m))^k for the current number of additions */
+    double expectedFalsePositiveRate() {
+        return Math.pow(1 - Math.exp(-(double) hashCount * insertions() / bitCount), hashCount);
+    }
+
+    // Hex digits of the word-th 64 bit word of the digest
+    private static long hash(String digest, int word) {
+        int from = word * HEX_DIGITS_PER_WORD;
+        return HexFormat.fromHexDigitsToLong(digest, from, from + HEX_DIGITS_PER_WORD);
+    }
+}
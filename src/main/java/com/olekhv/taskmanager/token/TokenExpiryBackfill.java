@@ -0,0 +1,56 @@
+package com.olekhv.taskmanager.token;
+
+import com.olekhv.taskmanager.config.JwtService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.List;
+
+/* Fills expires_at of tokens saved before the column existed from the
+JWT itself, so TokenPurgeJob keeps revoked ones until they expire.
+Tokens that can't pass verification anymore can be purged right away.
+New tokens get it when they are saved, so after the first run there
+is nothing left to do */
+@Component
+@ConditionalOnProperty(name = "application.security.token-revocation", havingValue = "table", matchIfMissing = true)
+@RequiredArgsConstructor
+@Slf4j
+public class TokenExpiryBackfill implements SmartInitializingSingleton {
+
+    private static final int PAGE_SIZE = 500;
+
+    private final TokenRepository tokenRepository;
+    private final JwtService jwtService;
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        LocalDateTime now = LocalDateTime.now();
+        long afterId = 0;
+        int updated = 0;
+        List<Token> page;
+        do {
+            page = tokenRepository.findWithoutExpiry(afterId, PageRequest.of(0, PAGE_SIZE));
+            if (page.isEmpty()) {
+                break;
+            }
+
+            page.forEach(token -> token.setExpiresAt(jwtService.extractExpiration(token.getToken())
+                    .map(expiration -> LocalDateTime.ofInstant(expiration.toInstant(), ZoneId.systemDefault()))
+                    .orElse(now)));
+            tokenRepository.saveAll(page);
+
+            afterId = page.get(page.size() - 1).getId();
+            updated += page.size();
+        } while (page.size() == PAGE_SIZE);
+
+        if (updated > 0) {
+            log.info("Filled expiration of {} tokens", updated);
+        }
+    }
+}
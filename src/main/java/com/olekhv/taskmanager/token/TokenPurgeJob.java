@@ -0,0 +1,55 @@
+package com.olekhv.taskmanager.token;
+
+import com.olekhv.taskmanager.config.IdRangeChunks;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+
+/* Deletes expired tokens in the background, so the token table and
+its unique index only hold tokens that can still pass JWT validation.
+Revoked tokens stay until they expire, as long as they can be
+presented they have to be known as revoked. Epoch revocation keeps no
+token rows, so there is nothing to purge then */
+@Component
+@ConditionalOnProperty(name = "application.security.token-revocation", havingValue = "table", matchIfMissing = true)
+@Slf4j
+public class TokenPurgeJob {
+
+    private final TokenRepository tokenRepository;
+    private final Counter purgedRows;
+
+    @Value("${application.security.token-purge.chunk-size:1000}")
+    private int chunkSize;
+
+    public TokenPurgeJob(TokenRepository tokenRepository,
+                         MeterRegistry meterRegistry) {
+        this.tokenRepository = tokenRepository;
+        this.purgedRows = Counter.builder("tokens.purged")
+                .description("Expired tokens deleted by the purge")
+                .register(meterRegistry);
+    }
+
+    @Scheduled(fixedDelayString = "${application.security.token-purge.interval:3600000}")
+    public void purge() {
+        purgeInactiveTokens(LocalDateTime.now());
+    }
+
+    // Chunked, logins insert and revoke tokens while the purge runs
+    public int purgeInactiveTokens(LocalDateTime now) {
+        int purgedTotal = IdRangeChunks.run(tokenRepository.findMaxId().orElse(0L), chunkSize,
+                (fromId, toId) -> tokenRepository.deleteInactiveInRange(fromId, toId, now));
+
+        purgedRows.increment(purgedTotal);
+
+        if (purgedTotal > 0) {
+            log.info("Purged {} inactive tokens", purgedTotal);
+        }
+        return purgedTotal;
+    }
+}
@@ -1,21 +1,74 @@
 package com.olekhv.taskmanager.token;
 
+import jakarta.persistence.QueryHint;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.HibernateHints.HINT_FETCH_SIZE;
+import static org.hibernate.jpa.HibernateHints.HINT_READ_ONLY;
 
 @Repository
 public interface TokenRepository extends JpaRepository<Token, Long> {
-    @Query (value = "SELECT t " +
-            "FROM Token t " +
-            "INNER JOIN User u " +
-            "ON t.user.id=u.id " +
-            "WHERE u.id=?1 and (t.expired = false or t.revoked = false)"
-    )
-    List<Token> findAllValidTokenByUserId(Long userId);
-
     Optional<Token> findByToken(String token);
+
+    // Single statement over the (user_id, revoked) index, rows are never loaded
+    @Transactional
+    @Modifying
+    @Query("UPDATE Token t SET t.expired = true, t.revoked = true, t.revokedAt = :now " +
+            "WHERE t.user.id = :userId AND t.revoked = false")
+    int revokeAllByUserId(@Param("userId") Long userId,
+                          @Param("now") LocalDateTime now);
+
+    String REVOKED_FETCH_SIZE = "1000";
+
+    /* Revoked tokens that can still pass signature and expiration checks.
+    Rows are read from a database cursor REVOKED_FETCH_SIZE at a time,
+    streams have to be consumed inside of a transaction and closed */
+    @QueryHints({
+            @QueryHint(name = HINT_FETCH_SIZE, value = REVOKED_FETCH_SIZE),
+            @QueryHint(name = HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT t.token FROM Token t " +
+            "WHERE t.revoked = true AND (t.expiresAt IS NULL OR t.expiresAt > :now)")
+    Stream<String> streamRevokedTokens(@Param("now") LocalDateTime now);
+
+    @Query("SELECT COUNT(t) FROM Token t " +
+            "WHERE t.revoked = true AND (t.expiresAt IS NULL OR t.expiresAt > :now)")
+    long countRevokedTokens(@Param("now") LocalDateTime now);
+
+    @Query("SELECT t.token FROM Token t WHERE t.revokedAt >= :since")
+    List<String> findTokensRevokedSince(@Param("since") LocalDateTime since);
+
+    @Query("SELECT t.token FROM Token t " +
+            "WHERE t.user.id = :userId AND t.revoked = true AND (t.expiresAt IS NULL OR t.expiresAt > :now)")
+    List<String> findRevokedTokensByUserId(@Param("userId") Long userId,
+                                           @Param("now") LocalDateTime now);
+
+    @Query("SELECT t FROM Token t WHERE t.expiresAt IS NULL AND t.id > :afterId ORDER BY t.id")
+    List<Token> findWithoutExpiry(@Param("afterId") Long afterId,
+                                  Pageable pageable);
+
+    @Query("SELECT MAX(t.id) FROM Token t")
+    Optional<Long> findMaxId();
+
+    /* Revoked rows are kept until the JWT expires, RevokedTokenFilter is rebuilt
+    from them. Rows without expiration are kept, see TokenExpiryBackfill */
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM Token t " +
+            "WHERE t.id > :fromId AND t.id <= :toId AND t.expiresAt <= :now")
+    int deleteInactiveInRange(@Param("fromId") Long fromId,
+                              @Param("toId") Long toId,
+                              @Param("now") LocalDateTime now);
 }
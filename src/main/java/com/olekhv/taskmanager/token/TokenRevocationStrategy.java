@@ -0,0 +1,27 @@
+package com.olekhv.taskmanager.token;
+
+import com.olekhv.taskmanager.config.VerifiedClaims;
+import com.olekhv.taskmanager.user.User;
+import com.olekhv.taskmanager.user.UserPrincipal;
+
+import java.util.Map;
+
+/* How issued bearer tokens are tracked and revoked, selected by
+application.security.token-revocation. "table" stores a row per token
+and checks it on every request, "epoch" stores one counter per user
+in the token itself and compares it with the cached counter */
+public interface TokenRevocationStrategy {
+
+    // Extra claims of every new token of the user
+    Map<String, Object> claimsFor(User user);
+
+    void tokenIssued(User user, String jwt);
+
+    // Digest is computed once per request by JwtAuthenticationFilter
+    boolean isActive(String jwt, String digest, VerifiedClaims claims, UserPrincipal principal);
+
+    // Logout with the given token
+    void revoke(String jwt, VerifiedClaims claims);
+
+    void revokeAll(User user);
+}
@@ -0,0 +1,19 @@
+package com.olekhv.taskmanager.token;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+@Getter
+@AllArgsConstructor
+public class TokenStatus {
+
+    // Token is not stored, so it can't be used
+    public static final TokenStatus UNKNOWN = new TokenStatus(null, false);
+
+    private final Long userId;
+    private final boolean active;
+
+    public static TokenStatus of(Token token) {
+        return new TokenStatus(token.getUser().getId(), !token.isExpired() && !token.isRevoked());
+    }
+}
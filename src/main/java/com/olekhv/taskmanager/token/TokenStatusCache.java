@@ -0,0 +1,89 @@
+package com.olekhv.taskmanager.token;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/* Status of bearer tokens keyed by token digest, so authenticated
+requests don't have to query token table every time.
+Entries must be invalidated whenever token is revoked.
+
+Invalidation doesn't scan the cache, it records when a token or all
+tokens of a user were revoked. An entry whose load started before
+that is stale and loaded again on read. This also covers loads that
+were in flight during the revocation and wrote the old status back */
+@Component
+public class TokenStatusCache {
+
+    private final Cache<String, Entry> cache;
+
+    // Invalidation times, kept until entries loaded before them have expired
+    private final Cache<String, Long> tokenInvalidations;
+    private final Cache<Long, Long> userInvalidations;
+    private final AtomicLong clock = new AtomicLong();
+
+    public TokenStatusCache(MeterRegistry meterRegistry,
+                            @Value("${application.security.token-status-cache.max-size:100000}") long maxSize,
+                            @Value("${application.security.token-status-cache.ttl:60000}") long ttlMillis) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(Duration.ofMillis(ttlMillis))
+                .recordStats()
+                .build();
+        // Twice the TTL, so a slow load that finished after the invalidation has expired too
+        Duration invalidationTtl = Duration.ofMillis(ttlMillis * 2);
+        this.tokenInvalidations = Caffeine.newBuilder()
+                .expireAfterWrite(invalidationTtl)
+                .build();
+        this.userInvalidations = Caffeine.newBuilder()
+                .expireAfterWrite(invalidationTtl)
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "jwt.token.status");
+    }
+
+    public TokenStatus get(String digest, Supplier<TokenStatus> loader) {
+        Entry entry = cache.get(digest, key -> load(loader));
+        while (isStale(digest, entry)) {
+            cache.asMap().remove(digest, entry);
+            entry = cache.get(digest, key -> load(loader));
+        }
+        return entry.status();
+    }
+
+    public void invalidate(String digest) {
+        tokenInvalidations.put(digest, clock.incrementAndGet());
+        cache.invalidate(digest);
+    }
+
+    public void invalidateUser(Long userId) {
+        userInvalidations.put(userId, clock.incrementAndGet());
+    }
+
+    private Entry load(Supplier<TokenStatus> loader) {
+        long loadStartedAt = clock.get();
+        return new Entry(loader.get(), loadStartedAt);
+    }
+
+    private boolean isStale(String digest, Entry entry) {
+        Long tokenInvalidatedAt = tokenInvalidations.getIfPresent(digest);
+        if (tokenInvalidatedAt != null && tokenInvalidatedAt > entry.loadStartedAt()) {
+            return true;
+        }
+        Long userId = entry.status().getUserId();
+        if (userId == null) {
+            return false;
+        }
+        Long userInvalidatedAt = userInvalidations.getIfPresent(userId);
+        return userInvalidatedAt != null && userInvalidatedAt > entry.loadStartedAt();
+    }
+
+    private record Entry(TokenStatus status, long loadStartedAt) {
+    }
+}
@@ -9,6 +9,8 @@ import lombok.NoArgsConstructor;
 
 import java.time.LocalDateTime;
 
+/* At most one row per user, a new reset request replaces the token.
+Only the SHA-256 digest of the token is stored and looked up */
 @Entity
 @Data
 @NoArgsConstructor
@@ -23,21 +25,20 @@ public class PasswordResetToken {
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
 
-    private String token;
+    @Column(unique = true, length = 64)
+    private String tokenHash;
 
     private LocalDateTime expirationTime;
 
-    @ManyToOne
-    @JoinColumn(name="user_id", referencedColumnName = "id")
+    @OneToOne
+    @JoinColumn(name="user_id", referencedColumnName = "id", unique = true)
     private User user;
 
-    public PasswordResetToken(String token, User user) {
-        this.token = token;
-        this.expirationTime = calculateExpirationDate();
-        this.user = user;
+    public boolean isExpired(LocalDateTime now) {
+        return !expirationTime.isAfter(now);
     }
 
-    private LocalDateTime calculateExpirationDate() {
+    public static LocalDateTime calculateExpirationDate() {
         return LocalDateTime.now().plusMinutes(EXPIRATION_TIME);
     }
 }
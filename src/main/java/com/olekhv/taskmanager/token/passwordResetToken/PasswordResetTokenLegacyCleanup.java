@@ -0,0 +1,65 @@
+package com.olekhv.taskmanager.token.passwordResetToken;
+
+import com.olekhv.taskmanager.config.SchemaTables;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.boot.autoconfigure.orm.jpa.EntityManagerFactoryDependsOnPostProcessor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+/* Reset tokens used to be stored in plain text, any number per user.
+Hibernate can only add the unique user_id constraint, which the
+concurrent insert fallback of PasswordResetTokenService relies on,
+to a table with one row per user, so those rows are deleted before
+the schema update. They can't be looked up by hash anyway, users
+just request a new token */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class PasswordResetTokenLegacyCleanup implements InitializingBean {
+
+    private static final String TABLE = "password_reset_token";
+    private static final String TOKEN_HASH_COLUMN = "token_hash";
+
+    private static final String DELETE_ALL = "DELETE FROM password_reset_token";
+
+    private static final String DELETE_UNHASHED = "DELETE FROM password_reset_token WHERE token_hash IS NULL";
+
+    // Derived table, MySQL can't select from the table it deletes from
+    private static final String DELETE_DUPLICATES = """
+            DELETE FROM password_reset_token
+            WHERE id NOT IN (SELECT id FROM (SELECT MAX(p.id) AS id
+                                             FROM password_reset_token p
+                                             GROUP BY p.user_id) latest)
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final SchemaTables schemaTables;
+
+    @Override
+    public void afterPropertiesSet() {
+        if (!schemaTables.exists(TABLE)) {
+            return;
+        }
+
+        int deleted;
+        if (!schemaTables.hasColumn(TABLE, TOKEN_HASH_COLUMN)) {
+            deleted = jdbcTemplate.update(DELETE_ALL);
+        } else {
+            deleted = jdbcTemplate.update(DELETE_UNHASHED) + jdbcTemplate.update(DELETE_DUPLICATES);
+        }
+        if (deleted > 0) {
+            log.info("Deleted {} legacy password reset tokens", deleted);
+        }
+    }
+
+    // Makes Hibernate wait for the cleanup before it updates the schema
+    @Component
+    static class EntityManagerFactoryDependency extends EntityManagerFactoryDependsOnPostProcessor {
+
+        EntityManagerFactoryDependency() {
+            super(PasswordResetTokenLegacyCleanup.class);
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package com.olekhv.taskmanager.token.passwordResetToken;
+
+import com.olekhv.taskmanager.config.IdRangeChunks;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+
+/* Deletes expired password reset tokens in the background,
+tokens that are never used don't stay in the table */
+@Component
+@Slf4j
+public class PasswordResetTokenPurgeJob {
+
+    private final PasswordResetTokenRepository passwordResetTokenRepository;
+    private final Counter purgedRows;
+
+    @Value("${application.security.password-reset-purge.chunk-size:1000}")
+    private int chunkSize;
+
+    public PasswordResetTokenPurgeJob(PasswordResetTokenRepository passwordResetTokenRepository,
+                                      MeterRegistry meterRegistry) {
+        this.passwordResetTokenRepository = passwordResetTokenRepository;
+        this.purgedRows = Counter.builder("password.reset.tokens.purged")
+                .description("Expired password reset tokens deleted by the purge")
+                .register(meterRegistry);
+    }
+
+    @Scheduled(fixedDelayString = "${application.security.password-reset-purge.interval:600000}")
+    public void purge() {
+        purgeExpiredTokens(LocalDateTime.now());
+    }
+
+    // Chunked, reset requests replace tokens in place while the purge runs
+    public int purgeExpiredTokens(LocalDateTime now) {
+        int purgedTotal = IdRangeChunks.run(passwordResetTokenRepository.findMaxId().orElse(0L), chunkSize,
+                (fromId, toId) -> passwordResetTokenRepository.deleteExpiredInRange(fromId, toId, now));
+
+        purgedRows.increment(purgedTotal);
+
+        if (purgedTotal > 0) {
+            log.info("Purged {} expired password reset tokens", purgedTotal);
+        }
+        return purgedTotal;
+    }
+}
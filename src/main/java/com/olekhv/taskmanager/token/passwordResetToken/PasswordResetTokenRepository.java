@@ -1,11 +1,49 @@
 package com.olekhv.taskmanager.token.passwordResetToken;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
 import java.util.Optional;
 
 @Repository
 public interface PasswordResetTokenRepository extends JpaRepository<PasswordResetToken, Long> {
-    Optional<PasswordResetToken> findByToken(String token);
+
+    // Token and its user in one query over the token_hash index
+    @Query("SELECT p FROM PasswordResetToken p JOIN FETCH p.user WHERE p.tokenHash = :tokenHash")
+    Optional<PasswordResetToken> findByTokenHash(@Param("tokenHash") String tokenHash);
+
+    // Replaces the token of the user in place, 0 if the user has none yet
+    @Transactional
+    @Modifying
+    @Query("UPDATE PasswordResetToken p SET p.tokenHash = :tokenHash, p.expirationTime = :expirationTime " +
+            "WHERE p.user.id = :userId")
+    int replaceToken(@Param("userId") Long userId,
+                     @Param("tokenHash") String tokenHash,
+                     @Param("expirationTime") LocalDateTime expirationTime);
+
+    /* 0 if the token was already used by a concurrent request or replaced
+    by a newer one, the row keeps its id when the token is replaced */
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM PasswordResetToken p WHERE p.id = :id AND p.tokenHash = :tokenHash")
+    int deleteUsedToken(@Param("id") Long id,
+                        @Param("tokenHash") String tokenHash);
+
+    @Query("SELECT MAX(p.id) FROM PasswordResetToken p")
+    Optional<Long> findMaxId();
+
+    // Rows without a hash are left from before tokens were hashed and can't be used
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM PasswordResetToken p " +
+            "WHERE p.id > :fromId AND p.id <= :toId " +
+            "AND (p.expirationTime <= :now OR p.tokenHash IS NULL)")
+    int deleteExpiredInRange(@Param("fromId") Long fromId,
+                             @Param("toId") Long toId,
+                             @Param("now") LocalDateTime now);
 }
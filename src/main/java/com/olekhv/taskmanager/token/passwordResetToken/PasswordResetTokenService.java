@@ -1,15 +1,18 @@
 package com.olekhv.taskmanager.token.passwordResetToken;
 
 import com.olekhv.taskmanager.exception.TokenNotFoundException;
+import com.olekhv.taskmanager.token.TokenDigest;
 import com.olekhv.taskmanager.user.User;
+import com.olekhv.taskmanager.user.UserPrincipal;
 import com.olekhv.taskmanager.user.UserRepository;
 import com.olekhv.taskmanager.user.UserService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
-import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.Optional;
 import java.util.UUID;
@@ -23,63 +26,66 @@ public class PasswordResetTokenService {
     private final UserService userService;
 
 
+    /* Repeated requests replace the token of the user,
+    so the table holds at most one row per user */
     public String createPasswordResetToken(String email){
         User user = userRepository.findByEmail(email).orElseThrow(
                 () -> new UsernameNotFoundException("User " + email + " not found")
         );
 
         String token = UUID.randomUUID().toString();
-
-        PasswordResetToken passwordResetToken = new PasswordResetToken(token, user);
-        passwordResetTokenRepository.save(passwordResetToken);
+        String tokenHash = TokenDigest.sha256(token);
+        LocalDateTime expirationTime = PasswordResetToken.calculateExpirationDate();
+
+        if (passwordResetTokenRepository.replaceToken(user.getId(), tokenHash, expirationTime) == 0) {
+            try {
+                passwordResetTokenRepository.save(PasswordResetToken.builder()
+                        .tokenHash(tokenHash)
+                        .expirationTime(expirationTime)
+                        .user(user)
+                        .build());
+            } catch (DataIntegrityViolationException e) {
+                // Concurrent request of the same user inserted the row first
+                passwordResetTokenRepository.replaceToken(user.getId(), tokenHash, expirationTime);
+            }
+        }
         return token;
     }
 
     public boolean isValidPasswordResetToken(String token){
-        Optional<PasswordResetToken> passwordResetToken = passwordResetTokenRepository.findByToken(token);
-
-        if(passwordResetToken.isPresent()){
-            Duration timeBetweenNowAndTokenExpiration =
-                    Duration.between(LocalDateTime.now(), passwordResetToken.get().getExpirationTime());
-
-            if(timeBetweenNowAndTokenExpiration.isNegative() || timeBetweenNowAndTokenExpiration.isZero()){
-                passwordResetTokenRepository.delete(passwordResetToken.get());
-            }
-        }
-
-        return passwordResetToken.isPresent();
+        return findValidToken(token).isPresent();
     }
 
+    // Token is only used up together with the password change
+    @Transactional
     public void recoverPasswordByToken(String newPassword,
                                        String passwordConfirmation,
                                        String token){
-        PasswordResetToken passwordResetToken = passwordResetTokenRepository.findByToken(token).orElseThrow(
-                () -> new TokenNotFoundException("Token not found")
+        PasswordResetToken passwordResetToken = findValidToken(token).orElseThrow(
+                () -> new TokenNotFoundException("Token is invalid")
         );
 
-        if(!isValidPasswordResetToken(token)){
-            throw new TokenNotFoundException("Token is invalid");
-        }
-
         if(!userService.isVerifiedNewPassword(newPassword, passwordConfirmation)){
             throw new RuntimeException("Password is not confirmed");
         }
 
-        User user = fetchUserByResetToken(token);
+        // Token can be used once, a concurrent request may have used it already
+        if(passwordResetTokenRepository.deleteUsedToken(passwordResetToken.getId(),
+                passwordResetToken.getTokenHash()) == 0){
+            throw new TokenNotFoundException("Token is invalid");
+        }
+
+        User user = passwordResetToken.getUser();
 
         userService.changeUserPassword(user.getPassword(),
                 newPassword,
                 passwordConfirmation,
-                user.getEmail());
-
-        passwordResetTokenRepository.delete(passwordResetToken);
+                UserPrincipal.from(user));
     }
 
-    public User fetchUserByResetToken(String token){
-        Optional<PasswordResetToken> passwordResetToken = passwordResetTokenRepository.findByToken(token);
-
-        if(passwordResetToken.isEmpty()) throw new UsernameNotFoundException("User not found");
-
-        return passwordResetToken.get().getUser();
+    // Expired rows are left to PasswordResetTokenPurgeJob
+    private Optional<PasswordResetToken> findValidToken(String token){
+        return passwordResetTokenRepository.findByTokenHash(TokenDigest.sha256(token))
+                .filter(passwordResetToken -> !passwordResetToken.isExpired(LocalDateTime.now()));
     }
 }
@@ -37,6 +37,12 @@ public class User implements UserDetails {
     @Enumerated(EnumType.STRING)
     private Role role;
 
+    /* Tokens issued with an older epoch are revoked, see EpochTokenRevocation.
+    Only changed by UserRepository.incrementTokenEpoch, saving a user that was
+    loaded before a bump must not write the old value back */
+    @Column(updatable = false)
+    private long tokenEpoch;
+
     @JsonBackReference
     @OneToMany(cascade = CascadeType.ALL, mappedBy = "owner", orphanRemoval = true)
     private List<Task> tasks;
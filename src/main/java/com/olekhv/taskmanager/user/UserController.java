@@ -1,14 +1,16 @@
 package com.olekhv.taskmanager.user;
 
+import com.olekhv.taskmanager.config.PasswordHashingExecutor;
 import com.olekhv.taskmanager.token.passwordResetToken.PasswordRecoveryDTO;
 import com.olekhv.taskmanager.token.passwordResetToken.PasswordResetTokenService;
 import jakarta.servlet.http.HttpServletRequest;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
-import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.concurrent.CompletableFuture;
+
 @RestController
 @RequiredArgsConstructor
 @RequestMapping("/api/v1/users")
@@ -16,31 +18,34 @@ public class UserController {
 
     private final UserService userService;
     private final PasswordResetTokenService passwordResetTokenService;
+    private final PasswordHashingExecutor passwordHashingExecutor;
 
 
     @PutMapping("/edit")
     public ResponseEntity<String> editUserInformation(@RequestParam(value = "firstName", required = false) String firstName,
                                                       @RequestParam(value = "lastName", required = false) String lastName,
-                                                      @AuthenticationPrincipal UserDetails userDetails){
-        userService.editUserInformation(firstName, lastName, userDetails.getUsername());
+                                                      @AuthenticationPrincipal UserPrincipal principal){
+        userService.editUserInformation(firstName, lastName, principal);
         return ResponseEntity.ok("User information was successfully edited");
     }
 
     @PutMapping("/edit/password")
-    public ResponseEntity<String> changeUserPassword(@RequestBody PasswordDTO passwordDTO,
-                                                     @AuthenticationPrincipal UserDetails userDetails){
-        userService.changeUserPassword(passwordDTO.getOldPassword(),
-                passwordDTO.getNewPassword(),
-                passwordDTO.getPasswordConfirmation(),
-                userDetails.getUsername());
-        return ResponseEntity.ok("Password has been changed");
+    public CompletableFuture<ResponseEntity<String>> changeUserPassword(@RequestBody PasswordDTO passwordDTO,
+                                                                        @AuthenticationPrincipal UserPrincipal principal){
+        return passwordHashingExecutor.submit(() -> {
+            userService.changeUserPassword(passwordDTO.getOldPassword(),
+                    passwordDTO.getNewPassword(),
+                    passwordDTO.getPasswordConfirmation(),
+                    principal);
+            return ResponseEntity.ok("Password has been changed");
+        });
     }
 
     @PutMapping("/edit/role")
     public ResponseEntity<String> changeRole(@RequestParam("role") Role role,
                                              @RequestParam("userEmail") String email,
-                                             @AuthenticationPrincipal UserDetails userDetails) {
-        userService.changeUserRole(role, email, userDetails.getUsername());
+                                             @AuthenticationPrincipal UserPrincipal principal) {
+        userService.changeUserRole(role, email, principal);
         return ResponseEntity.ok("Role of " + email + " was changed to " + role.name());
     }
 
@@ -53,12 +58,14 @@ public class UserController {
     }
 
     @PutMapping("/password/recovery")
-    private ResponseEntity<String> recoverPasswordByToken(String token,
-                                                          @RequestBody PasswordRecoveryDTO passwordRecoveryDTO){
-        passwordResetTokenService.recoverPasswordByToken(passwordRecoveryDTO.getNewPassword(),
-                passwordRecoveryDTO.getPasswordConfirmation(),
-                token);
-        return ResponseEntity.ok("Password was changed successfully");
+    private CompletableFuture<ResponseEntity<String>> recoverPasswordByToken(String token,
+                                                                             @RequestBody PasswordRecoveryDTO passwordRecoveryDTO){
+        return passwordHashingExecutor.submit(() -> {
+            passwordResetTokenService.recoverPasswordByToken(passwordRecoveryDTO.getNewPassword(),
+                    passwordRecoveryDTO.getPasswordConfirmation(),
+                    token);
+            return ResponseEntity.ok("Password was changed successfully");
+        });
     }
 
     private String getPasswordRecoveryLink(String token,
@@ -0,0 +1,39 @@
+package com.olekhv.taskmanager.user;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.function.Function;
+
+/* Principals keyed by email. Every change of
+email, password or role must invalidate the entry */
+@Component
+public class UserPrincipalCache {
+
+    private final Cache<String, UserPrincipal> cache;
+
+    public UserPrincipalCache(MeterRegistry meterRegistry,
+                              @Value("${application.security.principal-cache.max-size:10000}") long maxSize,
+                              @Value("${application.security.principal-cache.ttl:600000}") long ttlMillis) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(Duration.ofMillis(ttlMillis))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "user.principal");
+    }
+
+    /* Returns null if loader finds nothing, misses are not cached */
+    public UserPrincipal get(String email, Function<String, UserPrincipal> loader) {
+        return cache.get(email, loader);
+    }
+
+    public void invalidate(String email) {
+        cache.invalidate(email);
+    }
+}
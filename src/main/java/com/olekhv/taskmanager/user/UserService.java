@@ -12,6 +12,7 @@ public class UserService {
 
     private final UserRepository userRepository;
     private final PasswordEncoder passwordEncoder;
+    private final UserPrincipalCache userPrincipalCache;
 
     public User fetchUserByEmail(String email) {
         return userRepository.findByEmail(email).orElseThrow(
@@ -19,21 +20,28 @@ public class UserService {
         );
     }
 
+    public User fetchUserById(Long id) {
+        return userRepository.findById(id).orElseThrow(
+                () -> new UsernameNotFoundException("User not found")
+        );
+    }
+
     public void editUserInformation(String newFirstName,
                                     String newLastName,
-                                    String email) {
-        User user = fetchUserByEmail(email);
+                                    UserPrincipal authUser) {
+        User user = fetchUserById(authUser.getId());
         user.setFirstName(newFirstName);
         user.setLastName(newLastName);
 
         userRepository.save(user);
+        userPrincipalCache.invalidate(user.getEmail());
     }
 
     public void changeUserPassword(String oldPassword,
                                    String newPassword,
                                    String confirmedPassword,
-                                   String email) {
-        User user = fetchUserByEmail(email);
+                                   UserPrincipal authUser) {
+        User user = fetchUserById(authUser.getId());
 
         if (!oldPassword.equals(user.getPassword())) {
             /* !oldPassword.equals(user.getPassword()) is used
@@ -51,6 +59,7 @@ public class UserService {
         user.setPassword(passwordEncoder.encode(newPassword));
 
         userRepository.save(user);
+        userPrincipalCache.invalidate(user.getEmail());
     }
 
     public boolean isVerifiedNewPassword(String newPassword,
@@ -62,18 +71,15 @@ public class UserService {
         return passwordEncoder.matches(password, oldPassword);
     }
 
-    public void changeUserRole(Role role, String email, String adminEmail) {
-        User user = fetchUserByEmail(email);
-
-        User admin = userRepository.findByEmail(adminEmail).orElseThrow(
-                () -> new UsernameNotFoundException("User " + adminEmail + " not found")
-        );
-
+    public void changeUserRole(Role role, String email, UserPrincipal admin) {
         if (!admin.getRole().equals(Role.SUPPORT)) {
             throw new NoPermissionException("No permission");
         }
 
+        User user = fetchUserByEmail(email);
+
         user.setRole(role);
         userRepository.save(user);
+        userPrincipalCache.invalidate(user.getEmail());
     }
 }
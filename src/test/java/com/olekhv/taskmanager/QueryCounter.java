@@ -0,0 +1,26 @@
+package com.olekhv.taskmanager;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+/* Counts the SQL statements Hibernate prepares on the current thread, so
+tests can assert how many round trips a call makes. Scheduled jobs run on
+other threads and don't disturb the count. Enabled with
+spring.jpa.properties.hibernate.session_factory.statement_inspector */
+public class QueryCounter implements StatementInspector {
+
+    private static final ThreadLocal<Integer> STATEMENTS = ThreadLocal.withInitial(() -> 0);
+
+    @Override
+    public String inspect(String sql) {
+        STATEMENTS.set(STATEMENTS.get() + 1);
+        return sql;
+    }
+
+    public static void reset() {
+        STATEMENTS.set(0);
+    }
+
+    public static int count() {
+        return STATEMENTS.get();
+    }
+}
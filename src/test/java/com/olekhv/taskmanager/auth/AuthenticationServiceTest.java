@@ -0,0 +1,64 @@
+package com.olekhv.taskmanager.auth;
+
+import com.olekhv.taskmanager.token.Token;
+import com.olekhv.taskmanager.token.TokenRepository;
+import com.olekhv.taskmanager.user.Role;
+import com.olekhv.taskmanager.user.User;
+import com.olekhv.taskmanager.user.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@SpringBootTest
+class AuthenticationServiceTest {
+
+    @Autowired
+    private AuthenticationService authenticationService;
+
+    @Autowired
+    private PasswordEncoder passwordEncoder;
+
+    @MockBean
+    private UserRepository userRepository;
+
+    @MockBean
+    private TokenRepository tokenRepository;
+
+    private User user;
+
+    @BeforeEach
+    void setUp(){
+        user = User.builder()
+                .id(1L)
+                .firstName("Test")
+                .lastName("User")
+                .email("testUser@gmail.com")
+                .password(passwordEncoder.encode("password"))
+                .role(Role.USER)
+                .build();
+
+        when(userRepository.findByEmail(user.getEmail())).thenReturn(Optional.of(user));
+    }
+
+    @Test
+    void should_revoke_previous_tokens_with_single_update_on_login(){
+        when(tokenRepository.revokeAllByUserId(eq(user.getId()), any())).thenReturn(3);
+
+        AuthenticationResponse response = authenticationService.login(
+                new LoginRequest(user.getEmail(), "password"));
+
+        assertNotNull(response.getToken());
+        verify(tokenRepository, times(1)).revokeAllByUserId(eq(user.getId()), any());
+        verify(tokenRepository, never()).saveAll(anyIterable());
+        verify(tokenRepository, times(1)).save(argThat((Token token) ->
+                token.getToken().equals(response.getToken()) && token.getExpiresAt() != null));
+    }
+}
@@ -0,0 +1,142 @@
+package com.olekhv.taskmanager.auth;
+
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/* Login storm against a small servlet pool. Logins beyond the hashing
+pool and its queue must get 429, while an endpoint that does not hash
+passwords keeps answering quickly. Run with mvn -Pload-tests test */
+@Tag("load")
+@Slf4j
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "spring.datasource.url=jdbc:h2:mem:load;MODE=MySQL;DB_CLOSE_DELAY=-1",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.jpa.database=h2",
+        "spring.jpa.database-platform=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.jpa.show-sql=false",
+        "server.tomcat.threads.max=16",
+        "application.security.password-hashing.strength=12",
+        "application.security.password-hashing.threads=2",
+        "application.security.password-hashing.queue-capacity=8"
+})
+class PasswordHashingLoadTest {
+
+    private static final int LOGINS = 400;
+    private static final int PROBES = 50;
+    private static final Duration MAX_PROBE_P95 = Duration.ofMillis(500);
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private AuthenticationService authenticationService;
+
+    private final HttpClient client = HttpClient.newBuilder()
+            .connectTimeout(Duration.ofSeconds(5))
+            .build();
+
+    // Logs in during the storm, a login revokes earlier tokens of the same user
+    private String stormEmail;
+    private String authorization;
+
+    @BeforeEach
+    void setUp(){
+        stormEmail = "storm" + System.nanoTime() + "@gmail.com";
+        register(stormEmail);
+        authorization = "Bearer " + register("probe" + System.nanoTime() + "@gmail.com");
+    }
+
+    @Test
+    void should_keep_other_endpoints_fast_during_login_storm() throws Exception {
+        Duration idleP95 = probeP95();
+
+        List<CompletableFuture<HttpResponse<String>>> logins = new ArrayList<>();
+        for (int i = 0; i < LOGINS; i++) {
+            logins.add(client.sendAsync(login(), HttpResponse.BodyHandlers.ofString()));
+        }
+        Duration stormP95 = probeP95();
+
+        int ok = 0;
+        int rejected = 0;
+        List<Integer> otherStatuses = new ArrayList<>();
+        for (CompletableFuture<HttpResponse<String>> login : logins) {
+            int status = login.get().statusCode();
+            if (status == 200) {
+                ok++;
+            } else if (status == 429) {
+                rejected++;
+            } else {
+                otherStatuses.add(status);
+            }
+        }
+
+        log.info("Task list p95: {} ms idle, {} ms during {} logins ({} ok, {} rejected)",
+                idleP95.toMillis(), stormP95.toMillis(), LOGINS, ok, rejected);
+
+        // Every login is either hashed or turned away, nothing times out or fails
+        assertEquals(List.of(), otherStatuses);
+        assertTrue(ok > 0, "No login was admitted");
+        // Hashing pool and queue hold 10 logins, most of the burst must be turned away
+        assertTrue(rejected >= LOGINS / 2, "Only " + rejected + " logins were rejected");
+        assertTrue(stormP95.compareTo(MAX_PROBE_P95) < 0,
+                "Task list p95 during login storm was " + stormP95.toMillis() + " ms");
+    }
+
+    private Duration probeP95() throws Exception {
+        List<Long> latencies = new ArrayList<>();
+        for (int i = 0; i < PROBES; i++) {
+            long start = System.nanoTime();
+            HttpResponse<String> response = client.send(HttpRequest.newBuilder(uri("/api/v1/tasks/all?size=1"))
+                            .header("Authorization", authorization)
+                            .GET()
+                            .build(),
+                    HttpResponse.BodyHandlers.ofString());
+            latencies.add(System.nanoTime() - start);
+            assertEquals(200, response.statusCode());
+        }
+        Collections.sort(latencies);
+        return Duration.ofNanos(latencies.get((int) Math.ceil(PROBES * 0.95) - 1));
+    }
+
+    private HttpRequest login() {
+        return HttpRequest.newBuilder(uri("/api/v1/auth/login"))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(
+                        "{\"email\":\"" + stormEmail + "\",\"password\":\"password\"}"))
+                .build();
+    }
+
+    private String register(String email) {
+        return authenticationService.register(RegisterRequest.builder()
+                        .firstName("Load")
+                        .lastName("User")
+                        .email(email)
+                        .password("password")
+                        .build())
+                .getToken();
+    }
+
+    private URI uri(String path) {
+        return URI.create("http://localhost:" + port + path);
+    }
+}
@@ -0,0 +1,89 @@
+package com.olekhv.taskmanager.config;
+
+import com.olekhv.taskmanager.TaskManagerApplication;
+import com.olekhv.taskmanager.auth.AuthenticationService;
+import com.olekhv.taskmanager.auth.RegisterRequest;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.WebApplicationContext;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.springframework.security.test.web.servlet.setup.SecurityMockMvcConfigurers.springSecurity;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+
+/* Whole security filter chain of an authenticated request, backed by
+an in-memory H2 database, so the score covers token parsing, user
+and token lookups together with the cheapest possible controller.
+Runs once per token revocation mode */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JwtAuthenticationFilterBenchmark {
+
+    // Token revocation mode, see TokenRevocationStrategy. table-filter adds RevokedTokenFilter
+    @Param({"table", "table-filter", "epoch"})
+    private String revocation;
+
+    private ConfigurableApplicationContext context;
+    private MockMvc mockMvc;
+    private String authorization;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = new SpringApplicationBuilder(TaskManagerApplication.class)
+                .run("--server.port=0",
+                        "--management.server.port=0",
+                        "--application.security.token-revocation=" + revocation.replace("-filter", ""),
+                        "--application.security.revoked-token-filter.enabled=" + revocation.endsWith("-filter"),
+                        "--spring.datasource.url=jdbc:h2:mem:benchmark;MODE=MySQL;DB_CLOSE_DELAY=-1",
+                        "--spring.datasource.driver-class-name=org.h2.Driver",
+                        "--spring.datasource.username=sa",
+                        "--spring.datasource.password=",
+                        "--spring.jpa.database=h2",
+                        "--spring.jpa.database-platform=org.hibernate.dialect.H2Dialect",
+                        "--spring.jpa.hibernate.ddl-auto=create-drop",
+                        "--spring.jpa.show-sql=false",
+                        "--logging.level.root=WARN");
+
+        mockMvc = MockMvcBuilders.webAppContextSetup((WebApplicationContext) context)
+                .apply(springSecurity())
+                .build();
+
+        String token = context.getBean(AuthenticationService.class).register(RegisterRequest.builder()
+                        .firstName("Benchmark")
+                        .lastName("User")
+                        .email("benchmark@gmail.com")
+                        .password("password")
+                        .build())
+                .getToken();
+        authorization = "Bearer " + token;
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public MvcResult authenticatedRequest() throws Exception {
+        return mockMvc.perform(get("/api/v1/tasks/all")
+                        .param("size", "1")
+                        .header("Authorization", authorization))
+                .andReturn();
+    }
+
+    @Benchmark
+    public MvcResult requestWithoutToken() throws Exception {
+        return mockMvc.perform(get("/api/v1/tasks/all")
+                        .param("size", "1"))
+                .andReturn();
+    }
+}
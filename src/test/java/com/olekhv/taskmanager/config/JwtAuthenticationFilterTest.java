@@ -0,0 +1,61 @@
+package com.olekhv.taskmanager.config;
+
+import com.olekhv.taskmanager.token.TokenRevocationStrategy;
+import com.olekhv.taskmanager.user.Role;
+import com.olekhv.taskmanager.user.User;
+import com.olekhv.taskmanager.user.UserPrincipal;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.core.userdetails.UserDetailsService;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class JwtAuthenticationFilterTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final JwtService jwtService = new JwtService(100);
+    private final UserDetailsService userDetailsService = mock(UserDetailsService.class);
+    private final TokenRevocationStrategy tokenRevocationStrategy = mock(TokenRevocationStrategy.class);
+    private final JwtAuthenticationFilter filter =
+            new JwtAuthenticationFilter(tokenRevocationStrategy, jwtService, userDetailsService, meterRegistry);
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void should_time_parsing_and_lookups_separately() throws Exception {
+        UserPrincipal principal = UserPrincipal.from(User.builder()
+                .id(1L)
+                .email("testUser@gmail.com")
+                .password("password")
+                .role(Role.USER)
+                .build());
+        when(userDetailsService.loadUserByUsername(principal.getUsername())).thenReturn(principal);
+        when(tokenRevocationStrategy.isActive(anyString(), anyString(), any(), eq(principal))).thenReturn(true);
+
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.addHeader("Authorization", "Bearer " + jwtService.generateToken(principal));
+        filter.doFilter(request, new MockHttpServletResponse(), new MockFilterChain());
+
+        assertNotNull(SecurityContextHolder.getContext().getAuthentication());
+        for (String step : new String[]{"jwt.parse", "user.lookup", "token.check"}) {
+            assertEquals(1, meterRegistry.get("auth.filter").tag("step", step).timer().count(), step);
+        }
+    }
+
+    @Test
+    void should_not_time_requests_without_bearer_token() throws Exception {
+        filter.doFilter(new MockHttpServletRequest(), new MockHttpServletResponse(), new MockFilterChain());
+
+        assertEquals(0, meterRegistry.get("auth.filter").tag("step", "jwt.parse").timer().count());
+        verifyNoInteractions(userDetailsService, tokenRevocationStrategy);
+    }
+}
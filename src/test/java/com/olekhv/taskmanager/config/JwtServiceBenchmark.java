@@ -0,0 +1,54 @@
+package com.olekhv.taskmanager.config;
+
+import com.olekhv.taskmanager.token.TokenDigest;
+import com.olekhv.taskmanager.user.Role;
+import com.olekhv.taskmanager.user.User;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/* Validation cost of a single authenticated request, run
+with one thread so the score is requests per second per core */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(1)
+@Fork(1)
+public class JwtServiceBenchmark {
+
+    private JwtService jwtService;
+    private User user;
+    private String token;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        jwtService = new JwtService(10_000);
+        user = User.builder()
+                .email("benchmark@gmail.com")
+                .role(Role.USER)
+                .build();
+        token = jwtService.generateToken(user);
+    }
+
+    @Benchmark
+    public String generateToken() {
+        return jwtService.generateToken(user);
+    }
+
+    // Baseline: signature checked on every request with the prebuilt parser
+    @Benchmark
+    public boolean singleParse() {
+        VerifiedClaims claims = new VerifiedClaims(jwtService.parseClaims(token));
+        return claims.getSubject() != null && jwtService.isTokenValid(claims, user);
+    }
+
+    /* Cache hit, including the one digest JwtAuthenticationFilter computes
+    per request. Only worth it while this beats singleParse */
+    @Benchmark
+    public boolean cachedClaims() {
+        VerifiedClaims claims = jwtService.verify(token, TokenDigest.sha256(token));
+        return claims.getSubject() != null && jwtService.isTokenValid(claims, user);
+    }
+}
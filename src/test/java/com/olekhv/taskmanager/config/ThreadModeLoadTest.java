@@ -0,0 +1,151 @@
+package com.olekhv.taskmanager.config;
+
+import com.olekhv.taskmanager.TaskManagerApplication;
+import com.olekhv.taskmanager.auth.AuthenticationService;
+import com.olekhv.taskmanager.auth.RegisterRequest;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/* Same authenticated request mix against the same small Tomcat pool, once
+on platform threads and once on virtual threads. Logs throughput and
+latency of both. Virtual threads need Java 21: mvn -Pjava21,load-tests test */
+@Tag("load")
+@Slf4j
+class ThreadModeLoadTest {
+
+    private static final int CLIENTS = 200;
+    private static final int REQUESTS_PER_CLIENT = 25;
+
+    // Share of the platform throughput virtual threads must reach, the rest is run to run noise
+    private static final double MIN_THROUGHPUT_RATIO = 0.9;
+
+    @Test
+    void should_compare_platform_and_virtual_threads() throws Exception {
+        assumeTrue(Runtime.version().feature() >= 21, "Virtual threads need Java 21");
+
+        Result platform = run("platform", false);
+        Result virtual = run("virtual", true);
+
+        log.info("{}", platform);
+        log.info("{}", virtual);
+
+        assertEquals(0, platform.failures);
+        assertEquals(0, virtual.failures);
+        assertTrue(virtual.requestsPerSecond >= platform.requestsPerSecond * MIN_THROUGHPUT_RATIO,
+                "Virtual threads served " + Math.round(virtual.requestsPerSecond)
+                        + " req/s, platform threads " + Math.round(platform.requestsPerSecond));
+    }
+
+    private Result run(String mode, boolean virtualThreads) throws Exception {
+        ConfigurableApplicationContext context = new SpringApplicationBuilder(TaskManagerApplication.class)
+                .run("--server.port=0",
+                        "--management.server.port=0",
+                        "--server.tomcat.threads.max=16",
+                        "--application.threads.virtual.enabled=" + virtualThreads,
+                        "--spring.datasource.url=jdbc:h2:mem:" + mode + ";MODE=MySQL;DB_CLOSE_DELAY=-1",
+                        "--spring.datasource.driver-class-name=org.h2.Driver",
+                        "--spring.datasource.username=sa",
+                        "--spring.datasource.password=",
+                        "--spring.datasource.hikari.maximum-pool-size=10",
+                        "--spring.datasource.hikari.connection-timeout=3000",
+                        "--spring.jpa.database=h2",
+                        "--spring.jpa.database-platform=org.hibernate.dialect.H2Dialect",
+                        "--spring.jpa.hibernate.ddl-auto=create-drop",
+                        "--spring.jpa.show-sql=false",
+                        "--logging.level.root=WARN");
+        try {
+            int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+            String authorization = "Bearer " + context.getBean(AuthenticationService.class)
+                    .register(RegisterRequest.builder()
+                            .firstName("Load")
+                            .lastName("User")
+                            .email("load@gmail.com")
+                            .password("password")
+                            .build())
+                    .getToken();
+            return load(mode, URI.create("http://localhost:" + port + "/api/v1/tasks/all?size=10"), authorization);
+        } finally {
+            context.close();
+        }
+    }
+
+    private Result load(String mode, URI uri, String authorization) throws Exception {
+        HttpClient client = HttpClient.newHttpClient();
+        HttpRequest request = HttpRequest.newBuilder(uri)
+                .header("Authorization", authorization)
+                .GET()
+                .build();
+
+        List<Long> latencies = Collections.synchronizedList(new ArrayList<>());
+        List<Future<Integer>> clients = new ArrayList<>();
+        ExecutorService executor = Executors.newFixedThreadPool(CLIENTS);
+
+        long start = System.nanoTime();
+        try {
+            for (int i = 0; i < CLIENTS; i++) {
+                clients.add(executor.submit(() -> {
+                    int failures = 0;
+                    for (int j = 0; j < REQUESTS_PER_CLIENT; j++) {
+                        long sent = System.nanoTime();
+                        HttpResponse<Void> response = client.send(request, HttpResponse.BodyHandlers.discarding());
+                        latencies.add(System.nanoTime() - sent);
+                        if (response.statusCode() != 200) {
+                            failures++;
+                        }
+                    }
+                    return failures;
+                }));
+            }
+
+            int failures = 0;
+            for (Future<Integer> future : clients) {
+                failures += future.get();
+            }
+            return new Result(mode, System.nanoTime() - start, latencies, failures);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static final class Result {
+        private final String mode;
+        private final double requestsPerSecond;
+        private final long p50Millis;
+        private final long p99Millis;
+        private final int failures;
+
+        private Result(String mode, long elapsedNanos, List<Long> latencies, int failures) {
+            List<Long> sorted = new ArrayList<>(latencies);
+            Collections.sort(sorted);
+            this.mode = mode;
+            this.requestsPerSecond = sorted.size() / (elapsedNanos / 1e9);
+            this.p50Millis = sorted.get(sorted.size() / 2) / 1_000_000;
+            this.p99Millis = sorted.get((int) (sorted.size() * 0.99)) / 1_000_000;
+            this.failures = failures;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%-8s %8.0f req/s  p50 %4d ms  p99 %4d ms  %d failed",
+                    mode, requestsPerSecond, p50Millis, p99Millis, failures);
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package com.olekhv.taskmanager.task;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/* In-memory ordering of a task list: the comparator chain TaskService
+used before and TaskOrdering. The copy is measured separately
+to be subtracted from both sorts */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TaskOrderingBenchmark {
+
+    @Param({"10000", "100000"})
+    private int tasksCount;
+
+    private List<Task> tasks;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Random random = new Random(42);
+        TaskPriority[] priorities = TaskPriority.values();
+        TaskProgress[] progresses = TaskProgress.values();
+        LocalDateTime now = LocalDateTime.of(2024, 1, 1, 0, 0);
+
+        tasks = new ArrayList<>(tasksCount);
+        for (int i = 0; i < tasksCount; i++) {
+            LocalDateTime from = now.plusMinutes(random.nextInt(525_600));
+            tasks.add(Task.builder()
+                    .id((long) i)
+                    .name("Task " + i)
+                    .priority(priorities[random.nextInt(priorities.length)])
+                    .progress(progresses[random.nextInt(progresses.length)])
+                    .fromDateTime(from)
+                    .toDateTime(from.plusMinutes(random.nextInt(43_200)))
+                    .build());
+        }
+    }
+
+    @Benchmark
+    public List<Task> copyOnly() {
+        return new ArrayList<>(tasks);
+    }
+
+    @Benchmark
+    public List<Task> comparatorSort() {
+        List<Task> copy = new ArrayList<>(tasks);
+        copy.sort(Comparator.comparing(
+                        Task::getPriority).reversed()
+                .thenComparing(
+                        Task::getToDateTime).reversed()
+                .thenComparing(
+                        Task::getFromDateTime).reversed()
+                .thenComparing(
+                        Task::getProgress));
+        return copy;
+    }
+
+    @Benchmark
+    public List<Task> packedKeySort() {
+        List<Task> copy = new ArrayList<>(tasks);
+        TaskOrdering.sort(copy);
+        return copy;
+    }
+}
@@ -0,0 +1,87 @@
+package com.olekhv.taskmanager.task;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TaskOrderingTest {
+
+    private static final LocalDateTime NOW = LocalDateTime.of(2024, 5, 1, 12, 0);
+
+    @Test
+    void should_place_higher_priority_first(){
+        long highest = TaskOrdering.sortKey(TaskPriority.HIGHEST, NOW.plusDays(10), null, TaskProgress.TODO);
+        long low = TaskOrdering.sortKey(TaskPriority.LOW, NOW, NOW, TaskProgress.TODO);
+
+        assertTrue(highest < low);
+    }
+
+    @Test
+    void should_place_earlier_deadline_first_and_tasks_without_deadline_last(){
+        long soon = TaskOrdering.sortKey(TaskPriority.HIGH, NOW.plusHours(1), null, TaskProgress.CLOSED);
+        long later = TaskOrdering.sortKey(TaskPriority.HIGH, NOW.plusDays(1), null, TaskProgress.TODO);
+        long none = TaskOrdering.sortKey(TaskPriority.HIGH, null, null, TaskProgress.TODO);
+
+        assertTrue(soon < later);
+        assertTrue(later < none);
+    }
+
+    @Test
+    void should_compare_start_and_progress_when_deadlines_are_equal(){
+        long earlyStart = TaskOrdering.sortKey(TaskPriority.MEDIUM, NOW, NOW.minusDays(2), TaskProgress.FINISHED);
+        long lateStart = TaskOrdering.sortKey(TaskPriority.MEDIUM, NOW, NOW.minusDays(1), TaskProgress.TODO);
+        long lateStartInProcess = TaskOrdering.sortKey(TaskPriority.MEDIUM, NOW, NOW.minusDays(1), TaskProgress.IN_PROCESS);
+
+        assertTrue(earlyStart < lateStart);
+        assertTrue(lateStart < lateStartInProcess);
+    }
+
+    @Test
+    void should_replace_progress_bits_like_bulk_update(){
+        long planning = TaskOrdering.sortKey(TaskPriority.LOW, NOW, NOW, TaskProgress.PLANNING);
+        long overdue = TaskOrdering.sortKey(TaskPriority.LOW, NOW, NOW, TaskProgress.OVERDUE);
+
+        long updated = planning - planning % TaskOrdering.PROGRESS_RADIX
+                + TaskOrdering.progressBits(TaskProgress.OVERDUE);
+
+        assertEquals(overdue, updated);
+    }
+
+    @Test
+    void should_keep_keys_non_negative_for_extreme_dates(){
+        long key = TaskOrdering.sortKey(TaskPriority.LOW, LocalDateTime.MAX, LocalDateTime.MIN, TaskProgress.CLOSED);
+
+        assertTrue(key >= 0);
+        assertTrue(key < TaskOrdering.sortKey(TaskPriority.LOW, null, null, TaskProgress.CLOSED));
+    }
+
+    @Test
+    void should_sort_list_by_sort_key_and_keep_order_of_equal_tasks(){
+        Random random = new Random(7);
+        TaskPriority[] priorities = TaskPriority.values();
+        TaskProgress[] progresses = TaskProgress.values();
+
+        List<Task> tasks = new ArrayList<>();
+        for (long id = 0; id < 1000; id++) {
+            tasks.add(Task.builder()
+                    .id(id)
+                    .priority(priorities[random.nextInt(priorities.length)])
+                    .progress(progresses[random.nextInt(progresses.length)])
+                    .toDateTime(random.nextInt(10) == 0 ? null : NOW.plusHours(random.nextInt(48)))
+                    .build());
+        }
+
+        List<Task> expected = new ArrayList<>(tasks);
+        expected.sort(Comparator.comparingLong(TaskOrdering::sortKey));
+
+        TaskOrdering.sort(tasks);
+
+        assertEquals(expected, tasks);
+    }
+}
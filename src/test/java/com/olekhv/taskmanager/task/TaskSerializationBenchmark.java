@@ -0,0 +1,84 @@
+package com.olekhv.taskmanager.task;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.olekhv.taskmanager.user.Role;
+import com.olekhv.taskmanager.user.User;
+import lombok.extern.slf4j.Slf4j;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/* Rendering of one page of tasks as entities with their owner and as
+TaskSummaryDTO. Payload sizes are logged once per trial, the score
+shows the serialization cost */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Slf4j
+public class TaskSerializationBenchmark {
+
+    @Param({"50", "100"})
+    private int pageSize;
+
+    private ObjectMapper objectMapper;
+    private List<Task> entities;
+    private List<TaskSummaryDTO> summaries;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        objectMapper = new ObjectMapper()
+                .registerModule(new JavaTimeModule())
+                .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+
+        User owner = User.builder()
+                .id(1L)
+                .firstName("Benchmark")
+                .lastName("User")
+                .email("benchmark@gmail.com")
+                .password("$2a$10$7EqJtq98hPqEX7fNZaFWoO5lOa6m3zQ9hQ5p1zK8b2rW9rPZ6nJfK")
+                .role(Role.USER)
+                .build();
+        LocalDateTime now = LocalDateTime.of(2024, 1, 1, 9, 0);
+
+        entities = new ArrayList<>(pageSize);
+        summaries = new ArrayList<>(pageSize);
+        for (int i = 0; i < pageSize; i++) {
+            Task task = Task.builder()
+                    .id((long) i)
+                    .name("Task " + i)
+                    .description("Description of task " + i)
+                    .fromDateTime(now.plusHours(i))
+                    .toDateTime(now.plusDays(i))
+                    .priority(TaskPriority.HIGH)
+                    .progress(TaskProgress.IN_PROCESS)
+                    .owner(owner)
+                    .build();
+            entities.add(task);
+            summaries.add(new TaskSummaryDTO(task.getId(), task.getName(), task.getDescription(),
+                    task.getFromDateTime(), task.getToDateTime(), task.getPriority(), task.getProgress(),
+                    TaskOrdering.sortKey(task), owner.getId(), owner.getEmail()));
+        }
+
+        log.info("Page of {} tasks: entities {} bytes, summaries {} bytes", pageSize,
+                objectMapper.writeValueAsBytes(entities).length,
+                objectMapper.writeValueAsBytes(summaries).length);
+    }
+
+    @Benchmark
+    public byte[] entities() throws Exception {
+        return objectMapper.writeValueAsBytes(entities);
+    }
+
+    @Benchmark
+    public byte[] summaries() throws Exception {
+        return objectMapper.writeValueAsBytes(summaries);
+    }
+}
@@ -0,0 +1,68 @@
+package com.olekhv.taskmanager.task;
+
+import com.olekhv.taskmanager.QueryCounter;
+import com.olekhv.taskmanager.user.Role;
+import com.olekhv.taskmanager.user.User;
+import com.olekhv.taskmanager.user.UserPrincipal;
+import com.olekhv.taskmanager.user.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/* Statements a service call sends to a real database. The principal
+comes from the security filter, so the user must not be selected again */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:query-count;MODE=MySQL;DB_CLOSE_DELAY=-1",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.jpa.database=h2",
+        "spring.jpa.database-platform=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.jpa.show-sql=false",
+        "spring.jpa.properties.hibernate.session_factory.statement_inspector=com.olekhv.taskmanager.QueryCounter"
+})
+class TaskServiceQueryCountTest {
+
+    @Autowired
+    private TaskService taskService;
+
+    @Autowired
+    private TaskRepository taskRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    private UserPrincipal principal;
+
+    @BeforeEach
+    void setUp(){
+        User user = userRepository.save(User.builder()
+                .firstName("Test")
+                .lastName("User")
+                .email("queryCount@gmail.com")
+                .password("password")
+                .role(Role.USER)
+                .build());
+        principal = UserPrincipal.from(user);
+
+        // Reserves a block of task ids, so the measured call doesn't query the sequence
+        taskService.addTaskForSingleUser(principal, Task.builder().name("Warm up").build());
+    }
+
+    @Test
+    void should_add_task_with_a_single_insert(){
+        Task task = Task.builder()
+                .name("Task")
+                .build();
+
+        QueryCounter.reset();
+        taskService.addTaskForSingleUser(principal, task);
+
+        assertEquals(1, QueryCounter.count());
+        assertEquals(principal.getId(), taskRepository.findById(task.getId()).orElseThrow().getOwner().getId());
+    }
+}
@@ -3,6 +3,7 @@ package com.olekhv.taskmanager.task;
 import com.olekhv.taskmanager.exception.NoPermissionException;
 import com.olekhv.taskmanager.user.Role;
 import com.olekhv.taskmanager.user.User;
+import com.olekhv.taskmanager.user.UserPrincipal;
 import com.olekhv.taskmanager.user.UserRepository;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
@@ -10,11 +11,20 @@ import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
-
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Pageable;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
-import java.util.Objects;
+import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
@@ -25,6 +35,15 @@ class TaskServiceTest {
     @Autowired
     private TaskService taskService;
 
+    @Autowired
+    private OverdueTaskSweeper overdueTaskSweeper;
+
+    @Autowired
+    private TaskBatchService taskBatchService;
+
+    @Autowired
+    private TaskExportService taskExportService;
+
     @MockBean
     private UserRepository userRepository;
 
@@ -32,11 +51,13 @@ class TaskServiceTest {
     private TaskRepository taskRepository;
 
     private User user;
+    private UserPrincipal principal;
     private Task task;
 
     @BeforeEach
     void setUp(){
         user = User.builder()
+                .id(1L)
                 .firstName("Test")
                 .lastName("User")
                 .email("testUser@gmail.com")
@@ -50,19 +71,23 @@ class TaskServiceTest {
                 .owner(user)
                 .build();
 
+        principal = UserPrincipal.from(user);
+
         when(userRepository.findByEmail(user.getEmail())).thenReturn(Optional.of(user));
+        when(userRepository.getReferenceById(user.getId())).thenReturn(user);
         when(taskRepository.findById(task.getId())).thenReturn(Optional.of(task));
     }
 
     @Test
     @DisplayName("Add task for user")
-    void should_add_task_for_user_and_check_whether_size_of_tasks_of_user_increased(){
-        taskService.addTaskForSingleUser(Objects.requireNonNull(user).getEmail(), task);
+    void should_add_task_for_user_without_loading_user(){
+        taskService.addTaskForSingleUser(principal, task);
 
         verify(taskRepository, times(1)).save(task);
-        verify(userRepository, times(1)).save(user);
+        verify(userRepository, never()).findByEmail(anyString());
+        verify(userRepository, never()).save(any(User.class));
 
-        assertEquals(1, user.getTasks().size());
+        assertEquals(user, task.getOwner());
     }
 
     @Test
@@ -71,7 +96,7 @@ class TaskServiceTest {
                 .name("Edited task")
                 .build();
 
-        taskService.editTask(task.getId(), editedTask, user.getEmail());
+        taskService.editTask(task.getId(), editedTask, principal);
 
         verify(taskRepository, times(1)).save(any(Task.class));
 
@@ -80,7 +105,7 @@ class TaskServiceTest {
 
     @Test
     void should_change_task_progress(){
-        taskService.changeTaskProgress(task.getId(), TaskProgress.IN_PROCESS, user.getEmail());
+        taskService.changeTaskProgress(task.getId(), TaskProgress.IN_PROCESS, principal);
 
         verify(taskRepository, times(1)).save(any(Task.class));
 
@@ -89,7 +114,7 @@ class TaskServiceTest {
 
     @Test
     void should_delete_task(){
-        taskService.deleteTask(1L, user.getEmail());
+        taskService.deleteTask(1L, principal);
 
         assertEquals(TaskProgress.CLOSED, task.getProgress());
     }
@@ -98,28 +123,64 @@ class TaskServiceTest {
     void should_list_all_tasks_for_user_if_role_user(){
         task.setToDateTime(LocalDateTime.now().plusDays(1));
 
-        taskService.addTaskForSingleUser(Objects.requireNonNull(user).getEmail(), task);
+        when(taskRepository.findPageByOwnerId(eq(user.getId()), any(Pageable.class))).thenReturn(new ArrayList<>(List.of(summary(task))));
 
-        verify(taskRepository, times(1)).save(task);
-        verify(userRepository, times(1)).save(user);
+        TaskPage page = taskService.listAllTasks(principal, null, 50);
+
+        verify(userRepository, never()).findByEmail(anyString());
+        assertEquals(1, page.getTasks().size());
+        assertNull(page.getNextCursor());
+    }
+
+    @Test
+    void should_return_cursor_if_next_page_exists(){
+        Task secondTask = Task.builder()
+                .id(2L)
+                .name("Second task")
+                .owner(user)
+                .toDateTime(LocalDateTime.now().plusDays(2))
+                .build();
+        task.setToDateTime(LocalDateTime.now().plusDays(1));
 
-        assertEquals(1, taskService.listAllTasks(user.getEmail()).size());
+        when(taskRepository.findPageByOwnerId(any(), any(Pageable.class)))
+                .thenReturn(new ArrayList<>(List.of(summary(task), summary(secondTask))));
+
+        TaskPage page = taskService.listAllTasks(principal, null, 1);
+
+        assertEquals(1, page.getTasks().size());
+        assertEquals(task.getId(), TaskCursor.decode(page.getNextCursor()).getId());
     }
 
     @Test
-    void should_change_progress_if_task_overdue(){
+    @DisplayName("Listing tasks does not write overdue progress")
+    void should_not_save_tasks_when_listing_overdue_task(){
         task.setToDateTime(LocalDateTime.now().minusHours(1));
 
-        user.getTasks().add(task);
+        when(taskRepository.findPageByOwnerId(any(), any(Pageable.class))).thenReturn(new ArrayList<>(List.of(summary(task))));
 
-        taskService.listAllTasks(user.getEmail());
+        taskService.listAllTasks(principal, null, 50);
 
-        assertEquals(TaskProgress.OVERDUE, task.getProgress());
+        verify(taskRepository, never()).save(any(Task.class));
+    }
+
+    @Test
+    void should_mark_overdue_tasks_in_chunks(){
+        ReflectionTestUtils.setField(overdueTaskSweeper, "chunkSize", 1000);
+        when(taskRepository.findMaxId()).thenReturn(Optional.of(2500L));
+        when(taskRepository.markOverdueInRange(anyLong(), anyLong(), any(), eq(TaskProgress.OVERDUE), anyLong(), anyCollection()))
+                .thenReturn(2);
+
+        int marked = overdueTaskSweeper.markOverdueTasks(LocalDateTime.now());
+
+        verify(taskRepository, times(3))
+                .markOverdueInRange(anyLong(), anyLong(), any(), eq(TaskProgress.OVERDUE), anyLong(), anyCollection());
+        assertEquals(6, marked);
     }
 
     @Test
     void should_list_tasks_of_certain_user_if_role_support(){
         User support = User.builder()
+                .id(2L)
                 .firstName("Test")
                 .lastName("Support")
                 .email("testSupport@gmail.com")
@@ -127,20 +188,111 @@ class TaskServiceTest {
                 .build();
 
         task.setToDateTime(LocalDateTime.now().plusDays(1));
-        taskService.addTaskForSingleUser(Objects.requireNonNull(user).getEmail(), task);
-        when(userRepository.findByEmail(support.getEmail())).thenReturn(java.util.Optional.of(support));
+        when(taskRepository.findSummariesByOwnerId(user.getId())).thenReturn(List.of(summary(task)));
 
-        verify(taskRepository, times(1)).save(task);
-        verify(userRepository, times(1)).save(user);
+        List<TaskSummaryDTO> tasks = taskService.listTasksOfSpecificUser(user.getEmail(), UserPrincipal.from(support));
 
-        assertEquals(1, taskService.listTasksOfSpecificUser(user.getEmail(), support.getEmail()).size());
+        assertEquals(1, tasks.size());
+        assertEquals(user.getEmail(), tasks.get(0).getOwnerEmail());
     }
 
     @Test
     @DisplayName("Throw exception when try to list other user's tasks")
     void should_throw_exception_when_list_tasks_of_other_user_without_support_role(){
         assertThrows(NoPermissionException.class, () ->
-                taskService.listTasksOfSpecificUser(user.getEmail(), user.getEmail())
+                taskService.listTasksOfSpecificUser(user.getEmail(), principal)
         );
     }
-}
\ No newline at end of file
+
+    @Test
+    void should_add_valid_tasks_from_batch_and_report_invalid_ones() throws IOException {
+        InputStream body = json("[{\"name\":\"First\"}," +
+                "{\"description\":\"Without name\"}," +
+                "{\"name\":\"Third\",\"priority\":\"UNKNOWN\"}," +
+                "{\"name\":\"Fourth\",\"priority\":\"HIGH\"}]");
+
+        TaskBatchResult result = taskBatchService.addTasks(principal, body);
+
+        verify(taskRepository, times(1)).saveAll(anyIterable());
+        verify(userRepository, never()).findByEmail(anyString());
+        assertEquals(2, result.getCreated());
+        assertEquals(List.of(1, 2), result.getErrors().stream().map(TaskBatchError::getIndex).toList());
+    }
+
+    @Test
+    void should_report_only_task_that_broke_its_chunk() throws IOException {
+        Object chunkSize = ReflectionTestUtils.getField(taskBatchService, "chunkSize");
+        ReflectionTestUtils.setField(taskBatchService, "chunkSize", 3);
+        when(taskRepository.saveAll(anyIterable())).thenAnswer(invocation -> {
+            Iterable<Task> tasks = invocation.getArgument(0);
+            for (Task saved : tasks) {
+                if (saved.getName().equals("Duplicate")) {
+                    throw new DataIntegrityViolationException("Duplicate entry");
+                }
+            }
+            return tasks;
+        });
+
+        TaskBatchResult result;
+        try {
+            result = taskBatchService.addTasks(principal, json("[{\"name\":\"First\"}," +
+                    "{\"name\":\"Duplicate\"}," +
+                    "{\"name\":\"Third\"}]"));
+        } finally {
+            ReflectionTestUtils.setField(taskBatchService, "chunkSize", chunkSize);
+        }
+
+        // Whole chunk, then each of its tasks on its own
+        verify(taskRepository, times(4)).saveAll(anyIterable());
+        assertEquals(2, result.getCreated());
+        assertEquals(List.of(1), result.getErrors().stream().map(TaskBatchError::getIndex).toList());
+    }
+
+    @Test
+    void should_reject_batch_if_body_is_not_array(){
+        assertThrows(IllegalArgumentException.class, () ->
+                taskBatchService.addTasks(principal, json("{\"name\":\"Task\"}"))
+        );
+    }
+
+    @Test
+    void should_export_one_json_line_per_task() throws IOException {
+        Task secondTask = Task.builder()
+                .id(2L)
+                .name("Second, task")
+                .owner(user)
+                .priority(TaskPriority.HIGH)
+                .build();
+
+        when(taskRepository.streamByOwnerId(user.getId())).thenReturn(Stream.of(task, secondTask));
+
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        taskExportService.exportTasks(user.getId(), TaskExportFormat.NDJSON).writeTo(output);
+
+        String[] lines = output.toString(StandardCharsets.UTF_8).split("\n");
+        assertEquals(2, lines.length);
+        assertTrue(lines[0].startsWith("{\"id\":1,\"name\":\"Task\""));
+        assertTrue(lines[1].contains("\"priority\":\"HIGH\""));
+    }
+
+    @Test
+    void should_quote_csv_values_with_separators(){
+        assertEquals("Task", TaskExportService.csv("Task"));
+        assertEquals("\"Second, \"\"task\"\"\"", TaskExportService.csv("Second, \"task\""));
+        assertEquals("", TaskExportService.csv(null));
+    }
+
+    private static TaskSummaryDTO summary(Task task) {
+        return TaskSummaryDTO.builder()
+                .id(task.getId())
+                .name(task.getName())
+                .toDateTime(task.getToDateTime())
+                .ownerId(task.getOwner().getId())
+                .ownerEmail(task.getOwner().getEmail())
+                .build();
+    }
+
+    private static InputStream json(String value) {
+        return new ByteArrayInputStream(value.getBytes(StandardCharsets.UTF_8));
+    }
+}
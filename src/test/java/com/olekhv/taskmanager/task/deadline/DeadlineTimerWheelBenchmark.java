@@ -0,0 +1,111 @@
+package com.olekhv.taskmanager.task.deadline;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.PriorityQueue;
+import java.util.SplittableRandom;
+import java.util.concurrent.DelayQueue;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.TimeUnit;
+
+/* Steady state of 1M pending deadlines spread over one day.
+Every invocation moves simulated time by one second, expires
+due deadlines and schedules them again one day later */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DeadlineTimerWheelBenchmark {
+
+    private static final long TICK = 1000;
+    private static final long DAY = 24 * 60 * 60 * 1000L;
+
+    @Param({"1000000"})
+    private int pendingDeadlines;
+
+    private DeadlineTimerWheel wheel;
+    private PriorityQueue<long[]> priorityQueue;
+    private DelayQueue<SimulatedDeadline> delayQueue;
+    private long[] expiredBuffer;
+    private int expiredCount;
+    private long wheelClock;
+    private long queueClock;
+    private long delayClock;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        SplittableRandom random = new SplittableRandom(42);
+        wheel = new DeadlineTimerWheel(TICK, 4, 0);
+        priorityQueue = new PriorityQueue<>(pendingDeadlines, (a, b) -> Long.compare(a[1], b[1]));
+        delayQueue = new DelayQueue<>();
+        expiredBuffer = new long[pendingDeadlines];
+        for (long id = 0; id < pendingDeadlines; id++) {
+            long deadline = TICK + random.nextLong(DAY);
+            wheel.schedule(id, deadline);
+            priorityQueue.add(new long[]{id, deadline});
+            delayQueue.add(new SimulatedDeadline(id, deadline, this));
+        }
+    }
+
+    @Benchmark
+    public int timerWheel() {
+        wheelClock += TICK;
+        expiredCount = 0;
+        int expired = wheel.advanceTo(wheelClock, id -> expiredBuffer[expiredCount++] = id);
+        for (int i = 0; i < expiredCount; i++) {
+            wheel.schedule(expiredBuffer[i], wheelClock + DAY);
+        }
+        return expired;
+    }
+
+    @Benchmark
+    public int priorityQueue() {
+        queueClock += TICK;
+        int expired = 0;
+        while (!priorityQueue.isEmpty() && priorityQueue.peek()[1] <= queueClock) {
+            long[] deadline = priorityQueue.poll();
+            deadline[1] = queueClock + DAY;
+            priorityQueue.add(deadline);
+            expired++;
+        }
+        return expired;
+    }
+
+    @Benchmark
+    public int delayQueue() {
+        delayClock += TICK;
+        int expired = 0;
+        SimulatedDeadline deadline;
+        while ((deadline = delayQueue.poll()) != null) {
+            delayQueue.add(new SimulatedDeadline(deadline.id, delayClock + DAY, this));
+            expired++;
+        }
+        return expired;
+    }
+
+    /* Delay is measured against simulated clock so
+    DelayQueue can be compared without sleeping */
+    private static final class SimulatedDeadline implements Delayed {
+        private final long id;
+        private final long deadline;
+        private final DeadlineTimerWheelBenchmark clock;
+
+        private SimulatedDeadline(long id, long deadline, DeadlineTimerWheelBenchmark clock) {
+            this.id = id;
+            this.deadline = deadline;
+            this.clock = clock;
+        }
+
+        @Override
+        public long getDelay(TimeUnit unit) {
+            return unit.convert(deadline - clock.delayClock, TimeUnit.MILLISECONDS);
+        }
+
+        @Override
+        public int compareTo(Delayed other) {
+            return Long.compare(deadline, ((SimulatedDeadline) other).deadline);
+        }
+    }
+}
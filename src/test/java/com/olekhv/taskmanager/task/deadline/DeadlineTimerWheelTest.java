@@ -0,0 +1,77 @@
+package com.olekhv.taskmanager.task.deadline;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DeadlineTimerWheelTest {
+
+    private static final long TICK = 1000;
+
+    private DeadlineTimerWheel wheel;
+    private List<Long> expired;
+
+    @BeforeEach
+    void setUp(){
+        wheel = new DeadlineTimerWheel(TICK, 4, 0);
+        expired = new ArrayList<>();
+    }
+
+    @Test
+    void should_expire_task_at_its_deadline(){
+        wheel.schedule(1L, 5 * TICK);
+
+        wheel.advanceTo(4 * TICK, expired::add);
+        assertTrue(expired.isEmpty());
+
+        wheel.advanceTo(5 * TICK, expired::add);
+        assertEquals(List.of(1L), expired);
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    void should_cascade_deadlines_from_higher_levels(){
+        long farDeadline = 64L * 64 * 3 * TICK + 17 * TICK;
+        wheel.schedule(1L, farDeadline);
+        wheel.schedule(2L, 70 * TICK);
+
+        wheel.advanceTo(farDeadline - TICK, expired::add);
+        assertEquals(List.of(2L), expired);
+
+        wheel.advanceTo(farDeadline, expired::add);
+        assertEquals(List.of(2L, 1L), expired);
+    }
+
+    @Test
+    void should_not_expire_cancelled_or_rescheduled_task(){
+        wheel.schedule(1L, 10 * TICK);
+        wheel.schedule(2L, 10 * TICK);
+        wheel.cancel(1L);
+        wheel.schedule(2L, 200 * TICK);
+
+        wheel.advanceTo(100 * TICK, expired::add);
+        assertTrue(expired.isEmpty());
+
+        wheel.advanceTo(200 * TICK, expired::add);
+        assertEquals(List.of(2L), expired);
+    }
+
+    @Test
+    void should_expire_passed_deadline_on_next_advance(){
+        wheel.advanceTo(50 * TICK, expired::add);
+        wheel.schedule(1L, 10 * TICK);
+
+        wheel.advanceTo(50 * TICK, expired::add);
+        assertEquals(List.of(1L), expired);
+    }
+
+    @Test
+    void should_reject_deadline_beyond_horizon(){
+        assertFalse(wheel.schedule(1L, wheel.horizonMillis() + TICK));
+        assertEquals(0, wheel.size());
+    }
+}
@@ -4,12 +4,19 @@ import com.olekhv.taskmanager.exception.NoPermissionException;
 import com.olekhv.taskmanager.exception.TeamNotFoundException;
 import com.olekhv.taskmanager.exception.UserAlreadyExistsException;
 import com.olekhv.taskmanager.task.Task;
+import com.olekhv.taskmanager.task.TaskPage;
 import com.olekhv.taskmanager.task.TaskProgress;
 import com.olekhv.taskmanager.task.TaskRepository;
+import com.olekhv.taskmanager.task.TaskSummaryDTO;
+import com.olekhv.taskmanager.team.joinCode.JoinCodeAllocator;
 import com.olekhv.taskmanager.team.teamJoinRequest.TeamJoinRequest;
 import com.olekhv.taskmanager.team.teamJoinRequest.TeamJoinRequestRepository;
+import com.olekhv.taskmanager.team.teamMembership.TeamMember;
+import com.olekhv.taskmanager.team.teamMembership.TeamMembership;
+import com.olekhv.taskmanager.team.teamMembership.TeamMembershipRepository;
 import com.olekhv.taskmanager.user.Role;
 import com.olekhv.taskmanager.user.User;
+import com.olekhv.taskmanager.user.UserPrincipal;
 import com.olekhv.taskmanager.user.UserRepository;
 import jakarta.persistence.NonUniqueResultException;
 import org.junit.jupiter.api.BeforeEach;
@@ -18,13 +25,15 @@ import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Pageable;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
 
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
 
-import static org.assertj.core.api.AssertionsForClassTypes.assertThat;
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
 
@@ -46,7 +55,14 @@ class TeamServiceTest {
     @MockBean
     private TeamJoinRequestRepository teamJoinRequestRepository;
 
+    @MockBean
+    private TeamMembershipRepository teamMembershipRepository;
+
+    @MockBean
+    private JoinCodeAllocator joinCodeAllocator;
+
     private User user;
+    private UserPrincipal principal;
     private Team team;
 
     @BeforeEach
@@ -63,34 +79,33 @@ class TeamServiceTest {
                 .name("TestTeam")
                 .owner(user)
                 .joinCode("Abc123")
-                .admins(new ArrayList<>())
-                .members(new ArrayList<>())
                 .numberOfMembers(1)
                 .tasks(new ArrayList<>())
                 .build();
 
-        team.getMembers().add(user);
-        team.getAdmins().add(user);
+        joinTeam(user, TeamRole.ADMIN);
+
+        principal = UserPrincipal.from(user);
 
         when(userRepository.findByEmail(user.getEmail())).thenReturn(Optional.of(user));
+        when(userRepository.getReferenceById(user.getId())).thenReturn(user);
         when(teamRepository.findByJoinCode("Abc123")).thenReturn(Optional.of(team));
         when(teamRepository.findById(1L)).thenReturn(Optional.of(team));
-        when(teamRepository.findByTaskId(1L)).thenReturn(Optional.of(team));
+        when(joinCodeAllocator.allocate()).thenReturn("a1b2c3", "d4e5f6");
     }
 
     @Test
     void should_create_new_team(){
-        team.getMembers().remove(user);
-        team.getAdmins().remove(user);
+        leaveTeam(user);
 
         team.setType(TeamType.PUBLIC);
-        teamService.createTeam(team, user.getEmail());
+        teamService.createTeam(team, principal);
 
         verify(teamRepository, times(1)).save(team);
+        verify(teamMembershipRepository, times(1)).save(membership(user, TeamRole.ADMIN));
 
         assertEquals(6, team.getJoinCode().length());
-        assertEquals(1, team.getMembers().size());
-        assertEquals(1, team.getAdmins().size());
+        assertEquals(1, team.getNumberOfMembers());
     }
 
     @Test
@@ -100,11 +115,11 @@ class TeamServiceTest {
                 .owner(user)
                 .build();
 
-        teamService.addTaskForTeamMember( 1L, task, user.getEmail());
-        verify(teamRepository, times(1)).save(team);
-        assertEquals(1, team.getTasks().size());
-        assertEquals("TeamTask", team.getTasks().get(0).getName());
-        assertEquals(user, team.getTasks().get(0).getOwner());
+        teamService.addTaskForTeamMember(1L, task, principal);
+        verify(taskRepository, times(1)).save(task);
+        verify(teamRepository, never()).save(any(Team.class));
+        assertSame(team, task.getTeam());
+        assertEquals(user, task.getOwner());
     }
 
     @Test
@@ -115,12 +130,9 @@ class TeamServiceTest {
                 .owner(user)
                 .build();
 
-        team.getTasks().add(task);
-
-        when(taskRepository.findById(1L)).thenReturn(Optional.of(task));
-        when(teamRepository.findByTaskId(1L)).thenReturn(Optional.of(team));
+        taskAccess(task, TeamRole.ADMIN);
 
-        teamService.deleteTaskFromTeamMember(user.getEmail(), 1L);
+        teamService.deleteTaskFromTeamMember(principal, 1L);
         verify(taskRepository, times(1)).save(task);
 
         assertEquals(TaskProgress.CLOSED, task.getProgress());
@@ -128,17 +140,15 @@ class TeamServiceTest {
 
     @Test
     void should_throw_exception_if_user_try_to_delete_users_task(){
-        team.getAdmins().remove(user);
-
         Task task = Task.builder()
                 .id(1L)
                 .name("TeamTask")
                 .build();
 
-        when(taskRepository.findById(1L)).thenReturn(Optional.of(task));
+        taskAccess(task, TeamRole.MEMBER);
 
         assertThrows(NoPermissionException.class, ()->
-                teamService.deleteTaskFromTeamMember(user.getEmail(), task.getId()));
+                teamService.deleteTaskFromTeamMember(principal, task.getId()));
     }
 
     @Test
@@ -161,25 +171,22 @@ class TeamServiceTest {
     }
 
     @Test
-    @DisplayName("If generated join code is present generate new one")
-    void should_generate_new_joinCode_if_present_is_not_available_and_create_team_with_new_code(){
-        Team secondTeam = Team.builder()
-                .name("TestSecondTeam")
-                .owner(user)
-                .joinCode("Abc123")
-                .admins(new ArrayList<>())
-                .members(new ArrayList<>())
-                .numberOfMembers(1)
-                .build();
+    @DisplayName("If allocated join code is taken by an old team allocate new one")
+    void should_allocate_new_joinCode_if_present_is_not_available_and_create_team_with_new_code(){
+        when(teamRepository.save(team))
+                .thenThrow(new DataIntegrityViolationException("Duplicate join code"))
+                .thenReturn(team);
 
-        teamService.createTeam(team, user.getEmail());
+        teamService.createTeam(team, principal);
 
-        assertNotEquals(team.getJoinCode(), secondTeam.getJoinCode());
+        verify(teamRepository, times(2)).save(team);
+        assertEquals("d4e5f6", team.getJoinCode());
     }
 
     @Test
     void should_add_user_to_public_team_by_join_code(){
         User secondUser = User.builder()
+                .id(2L)
                 .firstName("Test")
                 .lastName("SecondUser")
                 .email("testSecondUser@gmail.com")
@@ -190,18 +197,18 @@ class TeamServiceTest {
 
         team.setType(TeamType.PUBLIC);
 
-        teamService.joinTeamByCode("Abc123", secondUser.getEmail());
+        teamService.joinTeamByCode("Abc123", UserPrincipal.from(secondUser));
 
         verify(teamRepository, times(1)).save(team);
+        verify(teamMembershipRepository, times(1)).save(membership(secondUser, TeamRole.MEMBER));
 
-        assertThat(team.getMembers().contains(secondUser)).isTrue();
         assertEquals(2, team.getNumberOfMembers());
-        assertEquals(2, team.getMembers().size());
     }
 
     @Test
     void should_create_invite_request_for_private_team(){
         User secondUser = User.builder()
+                .id(2L)
                 .firstName("Test")
                 .lastName("SecondUser")
                 .email("testSecondUser@gmail.com")
@@ -214,10 +221,11 @@ class TeamServiceTest {
                 .build();
 
         when(userRepository.findByEmail(secondUser.getEmail())).thenReturn(Optional.of(secondUser));
+        when(userRepository.getReferenceById(secondUser.getId())).thenReturn(secondUser);
 
         team.setType(TeamType.PRIVATE);
 
-        teamService.joinTeamByCode("Abc123", secondUser.getEmail());
+        teamService.joinTeamByCode("Abc123", UserPrincipal.from(secondUser));
 
         verify(teamJoinRequestRepository, times(1)).save(teamJoinRequest);
     }
@@ -225,13 +233,12 @@ class TeamServiceTest {
     @Test
     void should_throw_exception_if_user_already_belongs_to_team_and_try_to_join(){
         assertThrows(UserAlreadyExistsException.class, ()->
-                teamService.joinTeamByCode("Abc123", user.getEmail()));
+                teamService.joinTeamByCode("Abc123", principal));
     }
 
     @Test
     void should_throw_exception_if_request_already_exists(){
-        team.getMembers().remove(user);
-        team.getAdmins().remove(user);
+        leaveTeam(user);
 
         TeamJoinRequest teamJoinRequest = TeamJoinRequest
                 .builder()
@@ -243,13 +250,13 @@ class TeamServiceTest {
                 .thenReturn(Optional.of(teamJoinRequest));
 
         assertThrows(NonUniqueResultException.class, ()->
-                teamService.joinTeamByCode("Abc123", user.getEmail()));
+                teamService.joinTeamByCode("Abc123", principal));
     }
 
     @Test
     void should_throw_exception_if_code_invalid(){
         assertThrows(TeamNotFoundException.class, () ->
-                teamService.joinTeamByCode("Cba321", user.getEmail())
+                teamService.joinTeamByCode("Cba321", principal)
         );
     }
 
@@ -272,6 +279,7 @@ class TeamServiceTest {
     @Test
     void should_remove_member(){
         User secondUser = User.builder()
+                .id(2L)
                 .firstName("Test")
                 .lastName("SecondUser")
                 .email("testSecondUser@gmail.com")
@@ -279,21 +287,28 @@ class TeamServiceTest {
 
         when(userRepository.findByEmail(secondUser.getEmail())).thenReturn(Optional.of(secondUser));
 
-        team.getMembers().add(secondUser);
+        joinTeam(secondUser, TeamRole.MEMBER);
+        team.setNumberOfMembers(2);
+
+        when(teamMembershipRepository.deleteByTeamIdAndUserId(1L, secondUser.getId())).thenReturn(1);
+
+        teamService.removeTeamMember(secondUser.getEmail(), 1L, principal);
 
-        teamService.removeTeamMember(secondUser.getEmail(), 1L, user.getEmail());
+        verify(teamMembershipRepository, times(1)).deleteByTeamIdAndUserId(1L, secondUser.getId());
+        assertEquals(1, team.getNumberOfMembers());
     }
 
     @Test
     void should_throw_exception_if_try_to_remove_owner(){
         assertThrows(NoPermissionException.class, () ->
-                teamService.removeTeamMember(user.getEmail(), 1L, user.getEmail())
+                teamService.removeTeamMember(user.getEmail(), 1L, principal)
         );
     }
 
     @Test
     void should_throw_exception_if_admin_try_to_remove_other_admin(){
         User teamAdmin = User.builder()
+                .id(2L)
                 .firstName("Test")
                 .lastName("Admin")
                 .email("testAdmin@gmail.com")
@@ -301,17 +316,17 @@ class TeamServiceTest {
 
         when(userRepository.findByEmail(teamAdmin.getEmail())).thenReturn(Optional.of(teamAdmin));
 
-        team.getMembers().add(teamAdmin);
-        team.getAdmins().add(teamAdmin);
+        joinTeam(teamAdmin, TeamRole.ADMIN);
 
         assertThrows(NoPermissionException.class, () ->
-                teamService.removeTeamMember(teamAdmin.getEmail(), 1L, teamAdmin.getEmail())
+                teamService.removeTeamMember(teamAdmin.getEmail(), 1L, UserPrincipal.from(teamAdmin))
         );
     }
 
     @Test
     void should_throw_exception_if_user_try_to_remove_somebody(){
         User secondUser = User.builder()
+                .id(2L)
                 .firstName("Test")
                 .lastName("SecondUser")
                 .email("testSecondUser@gmail.com")
@@ -319,16 +334,17 @@ class TeamServiceTest {
 
         when(userRepository.findByEmail(secondUser.getEmail())).thenReturn(Optional.of(secondUser));
 
-        team.getMembers().add(secondUser);
+        joinTeam(secondUser, TeamRole.MEMBER);
 
         assertThrows(NoPermissionException.class, () ->
-                teamService.removeTeamMember(secondUser.getEmail(), 1L, secondUser.getEmail())
+                teamService.removeTeamMember(secondUser.getEmail(), 1L, UserPrincipal.from(secondUser))
         );
     }
 
     @Test
     void should_change_member_role_to_admin_if_owner(){
         User secondUser = User.builder()
+                .id(2L)
                 .firstName("Test")
                 .lastName("Second")
                 .email("testSecond@gmail.com")
@@ -336,18 +352,17 @@ class TeamServiceTest {
 
         when(userRepository.findByEmail(secondUser.getEmail())).thenReturn(Optional.of(secondUser));
 
-        team.getMembers().add(secondUser);
+        joinTeam(secondUser, TeamRole.MEMBER);
 
-        teamService.changeTeamMemberRole(secondUser.getUsername(), 1L, TeamRole.ADMIN, user.getEmail());
+        teamService.changeTeamMemberRole(secondUser.getUsername(), 1L, TeamRole.ADMIN, principal);
 
-        verify(teamRepository, times(1)).save(team);
-
-        assertThat(team.getAdmins().contains(secondUser)).isTrue();
+        verify(teamMembershipRepository, times(1)).updateRole(1L, secondUser.getId(), TeamRole.ADMIN);
     }
 
     @Test
     void should_change_member_role_from_admin_to_member(){
         User secondUser = User.builder()
+                .id(2L)
                 .firstName("Test")
                 .lastName("SecondUser")
                 .email("testSecondUser@gmail.com")
@@ -355,29 +370,123 @@ class TeamServiceTest {
 
         when(userRepository.findByEmail(secondUser.getEmail())).thenReturn(Optional.of(secondUser));
 
-        team.getMembers().add(secondUser);
-        team.getAdmins().add(secondUser);
+        joinTeam(secondUser, TeamRole.ADMIN);
 
-        teamService.changeTeamMemberRole(secondUser.getUsername(), 1L, TeamRole.MEMBER, user.getEmail());
-
-        verify(teamRepository, times(1)).save(team);
+        teamService.changeTeamMemberRole(secondUser.getUsername(), 1L, TeamRole.MEMBER, principal);
 
-        assertThat(team.getAdmins().contains(secondUser)).isFalse();
+        verify(teamMembershipRepository, times(1)).updateRole(1L, secondUser.getId(), TeamRole.MEMBER);
     }
 
     @Test
     void should_list_all_tasks_of_team_member(){
-        Task task = Task.builder()
+        TaskSummaryDTO task = TaskSummaryDTO.builder()
                 .id(1L)
                 .name("TeamTask")
-                .owner(user)
+                .ownerId(user.getId())
+                .ownerEmail(user.getEmail())
                 .toDateTime(LocalDateTime.now().plusDays(1))
                 .build();
 
-        team.getTasks().add(task);
+        when(teamRepository.existsById(1L)).thenReturn(true);
+        when(taskRepository.findTeamPageByOwnerId(eq(1L), eq(user.getId()), any(Pageable.class)))
+                .thenReturn(new ArrayList<>(List.of(task)));
 
-        List<Task> tasks = teamService.listAllTasksOfTeamMember(user.getEmail(), 1L);
+        TaskPage page = teamService.listAllTasksOfTeamMember(user.getEmail(), 1L, null, 50);
+
+        assertEquals(1, page.getTasks().size());
+        assertNull(page.getNextCursor());
+    }
 
-        assertEquals(1, tasks.size());
+    @Test
+    void should_assign_task_to_whole_team_without_saving_team(){
+        User secondUser = User.builder()
+                .id(2L)
+                .email("testSecondUser@gmail.com")
+                .build();
+
+        when(teamMembershipRepository.findMembersByTeamId(1L))
+                .thenReturn(List.of(teamMember(user), teamMember(secondUser)));
+        when(userRepository.getReferenceById(secondUser.getId())).thenReturn(secondUser);
+
+        TeamTaskAssignment assignment = TeamTaskAssignment.builder()
+                .task(Task.builder().name("TeamTask").build())
+                .wholeTeam(true)
+                .build();
+
+        assertEquals(2, teamService.assignTaskToTeamMembers(1L, assignment, principal));
+
+        verify(taskRepository, times(1)).saveAllAndFlush(
+                argThat((List<Task> tasks) -> tasks.stream().allMatch(task -> task.getTeam() == team)));
+        verify(teamRepository, never()).save(any(Team.class));
+        assertEquals(0, team.getTasks().size());
+    }
+
+    @Test
+    void should_not_assign_task_if_some_users_are_not_members(){
+        when(teamMembershipRepository.findMembersByTeamIdAndEmails(eq(1L), anyCollection()))
+                .thenReturn(List.of(teamMember(user)));
+
+        TeamTaskAssignment assignment = TeamTaskAssignment.builder()
+                .task(Task.builder().name("TeamTask").build())
+                .userEmails(List.of(user.getEmail(), "stranger@gmail.com"))
+                .build();
+
+        assertThrows(UsernameNotFoundException.class, () ->
+                teamService.assignTaskToTeamMembers(1L, assignment, principal)
+        );
+        verify(taskRepository, never()).saveAllAndFlush(anyList());
+    }
+
+    @Test
+    void should_not_assign_task_if_not_admin(){
+        joinTeam(user, TeamRole.MEMBER);
+
+        TeamTaskAssignment assignment = TeamTaskAssignment.builder()
+                .task(Task.builder().name("TeamTask").build())
+                .wholeTeam(true)
+                .build();
+
+        assertThrows(NoPermissionException.class, () ->
+                teamService.assignTaskToTeamMembers(1L, assignment, principal)
+        );
+    }
+
+    private void joinTeam(User member, TeamRole role) {
+        when(teamMembershipRepository.existsByTeamIdAndUserId(team.getId(), member.getId())).thenReturn(true);
+        when(teamMembershipRepository.existsByTeamIdAndUserIdAndRoleIn(eq(team.getId()), eq(member.getId()), anyCollection()))
+                .thenReturn(role == TeamRole.ADMIN);
+    }
+
+    private void leaveTeam(User member) {
+        when(teamMembershipRepository.existsByTeamIdAndUserId(team.getId(), member.getId())).thenReturn(false);
+        when(teamMembershipRepository.existsByTeamIdAndUserIdAndRoleIn(eq(team.getId()), eq(member.getId()), anyCollection()))
+                .thenReturn(false);
+    }
+
+    private void taskAccess(Task task, TeamRole role) {
+        when(teamRepository.findTaskAccess(task.getId(), user.getId()))
+                .thenReturn(Optional.of(new TeamTaskAccess(task, team.getId(), role)));
+    }
+
+    private static TeamMember teamMember(User member) {
+        return new TeamMember() {
+            @Override
+            public Long getUserId() {
+                return member.getId();
+            }
+
+            @Override
+            public String getEmail() {
+                return member.getEmail();
+            }
+        };
+    }
+
+    private TeamMembership membership(User member, TeamRole role) {
+        return TeamMembership.builder()
+                .team(team)
+                .user(member)
+                .role(role)
+                .build();
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,89 @@
+package com.olekhv.taskmanager.team.joinCode;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.BitSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JoinCodeAllocatorTest {
+
+    private static final long KEY = 6364136223846793005L;
+
+    @Test
+    void should_map_every_value_to_a_different_code(){
+        BitSet codes = new BitSet((int) JoinCodeAllocator.CAPACITY);
+
+        for (int value = 0; value < JoinCodeAllocator.CAPACITY; value++) {
+            int code = JoinCodeAllocator.permute(value, KEY);
+            assertTrue(code >= 0 && code < JoinCodeAllocator.CAPACITY);
+            assertFalse(codes.get(code), "Code of " + value + " is repeated");
+            codes.set(code);
+        }
+    }
+
+    @Test
+    void should_allocate_six_hex_characters(){
+        JoinCodeAllocator allocator = new JoinCodeAllocator(new AtomicLong()::getAndAdd, KEY, 10);
+
+        for (int i = 0; i < 1000; i++) {
+            assertTrue(allocator.allocate().matches("[0-9a-f]{6}"));
+        }
+    }
+
+    @Test
+    void should_not_repeat_codes_under_concurrent_allocation() throws Exception {
+        int instances = 4;
+        int threadsPerInstance = 8;
+        int codesPerThread = 20_000;
+
+        // Instances share the sequence like application instances share the database
+        AtomicLong sequence = new AtomicLong();
+        List<JoinCodeAllocator> allocators = IntStream.range(0, instances)
+                .mapToObj(i -> new JoinCodeAllocator(sequence::getAndAdd, KEY, 7))
+                .toList();
+
+        Set<String> codes = ConcurrentHashMap.newKeySet();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(instances * threadsPerInstance);
+        try {
+            List<Future<Object>> futures = IntStream.range(0, instances * threadsPerInstance)
+                    .mapToObj(thread -> executor.submit(() -> {
+                        JoinCodeAllocator allocator = allocators.get(thread % instances);
+                        start.await();
+                        for (int i = 0; i < codesPerThread; i++) {
+                            assertTrue(codes.add(allocator.allocate()));
+                        }
+                        return null;
+                    }))
+                    .toList();
+
+            start.countDown();
+            for (Future<Object> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(instances * threadsPerInstance * codesPerThread, codes.size());
+    }
+
+    @Test
+    void should_fail_when_codes_are_exhausted(){
+        JoinCodeAllocator allocator = new JoinCodeAllocator(
+                size -> JoinCodeAllocator.CAPACITY - 1, KEY, 2);
+
+        allocator.allocate();
+        assertThrows(IllegalStateException.class, allocator::allocate);
+    }
+}
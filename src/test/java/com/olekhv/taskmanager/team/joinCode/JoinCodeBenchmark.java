@@ -0,0 +1,48 @@
+package com.olekhv.taskmanager.team.joinCode;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/* Join code allocation with an in-memory sequence, so the score shows
+the allocator itself and not the database round trip once per block.
+teamCount codes are handed out first, the cost must not grow with it */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JoinCodeBenchmark {
+
+    private static final long KEY = 6364136223846793005L;
+    private static final int BLOCK_SIZE = 100;
+
+    @Param({"0", "1000000", "10000000"})
+    private int teamCount;
+
+    private JoinCodeAllocator allocator;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        // Wraps around above teamCount instead of running out of codes during long runs
+        long span = JoinCodeAllocator.CAPACITY - teamCount;
+        AtomicLong reserved = new AtomicLong();
+        allocator = new JoinCodeAllocator(
+                size -> teamCount + reserved.getAndAdd(size) % (span - span % size),
+                KEY,
+                BLOCK_SIZE);
+    }
+
+    @Benchmark
+    public String allocate() {
+        return allocator.allocate();
+    }
+
+    @Benchmark
+    @Threads(4)
+    public String allocateConcurrently() {
+        return allocator.allocate();
+    }
+}
@@ -0,0 +1,97 @@
+package com.olekhv.taskmanager.token;
+
+import com.olekhv.taskmanager.config.JwtService;
+import com.olekhv.taskmanager.config.VerifiedClaims;
+import com.olekhv.taskmanager.user.Role;
+import com.olekhv.taskmanager.user.User;
+import com.olekhv.taskmanager.user.UserPrincipal;
+import com.olekhv.taskmanager.user.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@SpringBootTest(properties = "application.security.token-revocation=epoch")
+class EpochTokenRevocationTest {
+
+    @Autowired
+    private TokenRevocationStrategy tokenRevocationStrategy;
+
+    @Autowired
+    private JwtService jwtService;
+
+    @MockBean
+    private UserRepository userRepository;
+
+    @MockBean
+    private TokenRepository tokenRepository;
+
+    // Epochs stay cached in the shared context, so every test gets its own user
+    private static final AtomicLong USER_IDS = new AtomicLong();
+
+    private User user;
+
+    @BeforeEach
+    void setUp(){
+        user = User.builder()
+                .id(USER_IDS.incrementAndGet())
+                .email("testUser@gmail.com")
+                .role(Role.USER)
+                .tokenEpoch(3)
+                .build();
+        when(userRepository.findTokenEpochById(user.getId())).thenReturn(Optional.of(3L));
+    }
+
+    @Test
+    void should_accept_token_of_current_epoch_without_token_table(){
+        VerifiedClaims claims = jwtService.verify(issue(user));
+
+        assertInstanceOf(EpochTokenRevocation.class, tokenRevocationStrategy);
+        assertTrue(tokenRevocationStrategy.isActive(null, null, claims, UserPrincipal.from(user)));
+        verifyNoInteractions(tokenRepository);
+    }
+
+    @Test
+    void should_reject_tokens_issued_before_revocation(){
+        VerifiedClaims claims = jwtService.verify(issue(user));
+        when(userRepository.findTokenEpochById(user.getId())).thenReturn(Optional.of(4L));
+
+        tokenRevocationStrategy.revokeAll(user);
+
+        verify(userRepository, times(1)).incrementTokenEpoch(user.getId());
+        assertEquals(4, user.getTokenEpoch());
+        assertFalse(tokenRevocationStrategy.isActive(null, null, claims, UserPrincipal.from(user)));
+        assertTrue(tokenRevocationStrategy.isActive(null, null, jwtService.verify(issue(user)), UserPrincipal.from(user)));
+    }
+
+    @Test
+    void should_reject_tokens_revoked_on_other_instance(){
+        VerifiedClaims claims = jwtService.verify(issue(user));
+
+        // Another instance bumped the epoch, nothing was cached here yet
+        when(userRepository.findTokenEpochById(user.getId())).thenReturn(Optional.of(4L));
+
+        assertFalse(tokenRevocationStrategy.isActive(null, null, claims, UserPrincipal.from(user)));
+    }
+
+    @Test
+    void should_reject_tokens_of_deleted_user(){
+        VerifiedClaims claims = jwtService.verify(issue(user));
+        when(userRepository.findTokenEpochById(user.getId())).thenReturn(Optional.empty());
+
+        assertFalse(tokenRevocationStrategy.isActive(null, null, claims, UserPrincipal.from(user)));
+    }
+
+    private String issue(User user) {
+        String jwt = jwtService.generateToken(tokenRevocationStrategy.claimsFor(user), user);
+        tokenRevocationStrategy.tokenIssued(user, jwt);
+        return jwt;
+    }
+}
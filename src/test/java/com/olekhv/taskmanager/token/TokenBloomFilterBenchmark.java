@@ -0,0 +1,55 @@
+package com.olekhv.taskmanager.token;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/* rebuild is the in-memory part of RevokedTokenFilter.rebuild, reading
+the rows from the table comes on top of it. Tokens are about the length
+of issued JWTs, so hashing costs the same. mightBeRevoked is the check
+done for every request before the table, the digest is computed once
+per request by JwtAuthenticationFilter and not measured here */
+@State(Scope.Benchmark)
+@Warmup(iterations = 2)
+@Measurement(iterations = 3)
+@Fork(value = 1, jvmArgs = "-Xmx2g")
+public class TokenBloomFilterBenchmark {
+
+    private static final String TOKEN_PREFIX = "eyJhbGciOiJIUzI1NiJ9.".repeat(8);
+
+    @Param({"100000", "1000000", "10000000"})
+    private int revokedTokens;
+
+    private static final int PROBES = 1024;
+
+    private TokenBloomFilter filter;
+    private String[] probes;
+    private int probe;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        filter = rebuild();
+        probes = new String[PROBES];
+        for (int i = 0; i < PROBES; i++) {
+            probes[i] = TokenDigest.sha256(TOKEN_PREFIX + "active-" + i);
+        }
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public TokenBloomFilter rebuild() {
+        TokenBloomFilter rebuilt = TokenBloomFilter.create(revokedTokens, 0.01);
+        for (int i = 0; i < revokedTokens; i++) {
+            rebuilt.put(TokenDigest.sha256(TOKEN_PREFIX + i));
+        }
+        return rebuilt;
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public boolean mightBeRevoked() {
+        return filter.mightContain(probes[probe++ & (PROBES - 1)]);
+    }
+}
@@ -0,0 +1,56 @@
+package com.olekhv.taskmanager.token;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TokenBloomFilterTest {
+
+    private static final int REVOKED = 200_000;
+
+    @Test
+    void should_contain_every_added_token(){
+        TokenBloomFilter filter = TokenBloomFilter.create(REVOKED, 0.01);
+        for (int i = 0; i < REVOKED; i++) {
+            filter.put(TokenDigest.sha256("revoked-" + i));
+        }
+
+        for (int i = 0; i < REVOKED; i++) {
+            assertTrue(filter.mightContain(TokenDigest.sha256("revoked-" + i)));
+        }
+    }
+
+    @Test
+    void should_keep_false_positive_rate_close_to_configured_one(){
+        TokenBloomFilter filter = TokenBloomFilter.create(REVOKED, 0.01);
+        for (int i = 0; i < REVOKED; i++) {
+            filter.put(TokenDigest.sha256("revoked-" + i));
+        }
+
+        int falsePositives = 0;
+        for (int i = 0; i < REVOKED; i++) {
+            if (filter.mightContain(TokenDigest.sha256("active-" + i))) {
+                falsePositives++;
+            }
+        }
+
+        double rate = (double) falsePositives / REVOKED;
+        assertTrue(rate < 0.0125, "False positive rate is " + rate);
+        assertEquals(0.01, filter.expectedFalsePositiveRate(), 0.001);
+    }
+
+    @Test
+    void should_need_about_twelve_megabytes_for_ten_million_tokens(){
+        TokenBloomFilter filter = TokenBloomFilter.create(10_000_000, 0.01);
+
+        // 9.6 bits and 7 hashes per token
+        assertEquals(7, filter.hashCount());
+        assertEquals(11_981_328, filter.memoryBytes(), 64);
+    }
+
+    @Test
+    void should_reject_invalid_false_positive_rate(){
+        assertThrows(IllegalArgumentException.class, () -> TokenBloomFilter.create(100, 0));
+        assertThrows(IllegalArgumentException.class, () -> TokenBloomFilter.create(100, 1));
+    }
+}
@@ -0,0 +1,45 @@
+package com.olekhv.taskmanager.token;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@SpringBootTest
+class TokenPurgeJobTest {
+
+    @Autowired
+    private TokenPurgeJob tokenPurgeJob;
+
+    @MockBean
+    private TokenRepository tokenRepository;
+
+    @Test
+    void should_purge_inactive_tokens_in_chunks(){
+        ReflectionTestUtils.setField(tokenPurgeJob, "chunkSize", 1000);
+        when(tokenRepository.findMaxId()).thenReturn(Optional.of(2500L));
+        when(tokenRepository.deleteInactiveInRange(anyLong(), anyLong(), any())).thenReturn(3);
+
+        int purged = tokenPurgeJob.purgeInactiveTokens(LocalDateTime.now());
+
+        verify(tokenRepository).deleteInactiveInRange(eq(0L), eq(1000L), any());
+        verify(tokenRepository).deleteInactiveInRange(eq(1000L), eq(2000L), any());
+        verify(tokenRepository).deleteInactiveInRange(eq(2000L), eq(2500L), any());
+        assertEquals(9, purged);
+    }
+
+    @Test
+    void should_not_purge_anything_if_table_is_empty(){
+        when(tokenRepository.findMaxId()).thenReturn(Optional.empty());
+
+        assertEquals(0, tokenPurgeJob.purgeInactiveTokens(LocalDateTime.now()));
+        verify(tokenRepository, never()).deleteInactiveInRange(anyLong(), anyLong(), any());
+    }
+}
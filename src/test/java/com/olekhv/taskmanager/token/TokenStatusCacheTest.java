@@ -0,0 +1,74 @@
+package com.olekhv.taskmanager.token;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TokenStatusCacheTest {
+
+    private static final TokenStatus ACTIVE = new TokenStatus(1L, true);
+    private static final TokenStatus REVOKED = new TokenStatus(1L, false);
+
+    private final TokenStatusCache cache = new TokenStatusCache(new SimpleMeterRegistry(), 1000, 60000);
+
+    @Test
+    void should_load_status_again_after_token_is_invalidated(){
+        assertTrue(cache.get("token", () -> ACTIVE).isActive());
+
+        cache.invalidate("token");
+
+        assertFalse(cache.get("token", () -> REVOKED).isActive());
+    }
+
+    @Test
+    void should_load_only_tokens_of_invalidated_user_again(){
+        cache.get("token", () -> ACTIVE);
+        cache.get("other", () -> new TokenStatus(2L, true));
+
+        cache.invalidateUser(1L);
+
+        assertFalse(cache.get("token", () -> REVOKED).isActive());
+        assertTrue(cache.get("other", () -> new TokenStatus(2L, false)).isActive());
+    }
+
+    @Test
+    void should_not_serve_status_loaded_while_user_was_revoked() throws Exception {
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch revoked = new CountDownLatch(1);
+        AtomicInteger loads = new AtomicInteger();
+
+        // First load reads the row before the revocation is committed
+        CompletableFuture<TokenStatus> inFlight = CompletableFuture.supplyAsync(() ->
+                cache.get("token", () -> {
+                    if (loads.incrementAndGet() > 1) {
+                        return REVOKED;
+                    }
+                    loading.countDown();
+                    await(revoked);
+                    return ACTIVE;
+                }));
+
+        assertTrue(loading.await(5, TimeUnit.SECONDS));
+        cache.invalidateUser(1L);
+        revoked.countDown();
+
+        assertFalse(inFlight.get(5, TimeUnit.SECONDS).isActive());
+        assertFalse(cache.get("token", () -> ACTIVE).isActive());
+        assertEquals(2, loads.get());
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            assertTrue(latch.await(5, TimeUnit.SECONDS));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+}
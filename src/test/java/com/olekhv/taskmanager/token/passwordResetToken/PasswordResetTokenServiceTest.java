@@ -0,0 +1,114 @@
+package com.olekhv.taskmanager.token.passwordResetToken;
+
+import com.olekhv.taskmanager.exception.TokenNotFoundException;
+import com.olekhv.taskmanager.token.TokenDigest;
+import com.olekhv.taskmanager.user.Role;
+import com.olekhv.taskmanager.user.User;
+import com.olekhv.taskmanager.user.UserRepository;
+import com.olekhv.taskmanager.user.UserService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@SpringBootTest
+class PasswordResetTokenServiceTest {
+
+    @Autowired
+    private PasswordResetTokenService passwordResetTokenService;
+
+    @MockBean
+    private PasswordResetTokenRepository passwordResetTokenRepository;
+
+    @MockBean
+    private UserRepository userRepository;
+
+    @MockBean
+    private UserService userService;
+
+    private User user;
+
+    @BeforeEach
+    void setUp() {
+        user = User.builder()
+                .id(1L)
+                .firstName("Test")
+                .lastName("User")
+                .email("testUser@gmail.com")
+                .password("encoded")
+                .role(Role.USER)
+                .build();
+
+        when(userRepository.findByEmail(user.getEmail())).thenReturn(Optional.of(user));
+        when(userService.isVerifiedNewPassword("new", "new")).thenReturn(true);
+    }
+
+    @Test
+    void should_replace_token_of_user_instead_of_inserting_new_row(){
+        when(passwordResetTokenRepository.replaceToken(eq(user.getId()), anyString(), any())).thenReturn(1);
+
+        String token = passwordResetTokenService.createPasswordResetToken(user.getEmail());
+
+        verify(passwordResetTokenRepository).replaceToken(eq(user.getId()), eq(TokenDigest.sha256(token)), any());
+        verify(passwordResetTokenRepository, never()).save(any());
+    }
+
+    @Test
+    void should_store_only_hash_of_first_token_of_user(){
+        when(passwordResetTokenRepository.replaceToken(eq(user.getId()), anyString(), any())).thenReturn(0);
+
+        String token = passwordResetTokenService.createPasswordResetToken(user.getEmail());
+
+        verify(passwordResetTokenRepository).save(argThat(saved ->
+                saved.getTokenHash().equals(TokenDigest.sha256(token)) && saved.getUser() == user));
+    }
+
+    @Test
+    void should_recover_password_with_single_lookup(){
+        PasswordResetToken resetToken = resetToken("token", LocalDateTime.now().plusMinutes(5));
+        when(passwordResetTokenRepository.findByTokenHash(TokenDigest.sha256("token"))).thenReturn(Optional.of(resetToken));
+        when(passwordResetTokenRepository.deleteUsedToken(resetToken.getId(), resetToken.getTokenHash())).thenReturn(1);
+
+        passwordResetTokenService.recoverPasswordByToken("new", "new", "token");
+
+        verify(passwordResetTokenRepository, times(1)).findByTokenHash(anyString());
+        verify(userService).changeUserPassword(eq("encoded"), eq("new"), eq("new"), any());
+    }
+
+    @Test
+    void should_reject_expired_token(){
+        when(passwordResetTokenRepository.findByTokenHash(TokenDigest.sha256("token")))
+                .thenReturn(Optional.of(resetToken("token", LocalDateTime.now().minusMinutes(1))));
+
+        assertThrows(TokenNotFoundException.class,
+                () -> passwordResetTokenService.recoverPasswordByToken("new", "new", "token"));
+        verify(userService, never()).changeUserPassword(any(), any(), any(), any());
+    }
+
+    @Test
+    void should_reject_token_used_or_replaced_by_concurrent_request(){
+        PasswordResetToken resetToken = resetToken("token", LocalDateTime.now().plusMinutes(5));
+        when(passwordResetTokenRepository.findByTokenHash(TokenDigest.sha256("token"))).thenReturn(Optional.of(resetToken));
+        when(passwordResetTokenRepository.deleteUsedToken(resetToken.getId(), resetToken.getTokenHash())).thenReturn(0);
+
+        assertThrows(TokenNotFoundException.class,
+                () -> passwordResetTokenService.recoverPasswordByToken("new", "new", "token"));
+        verify(userService, never()).changeUserPassword(any(), any(), any(), any());
+    }
+
+    private PasswordResetToken resetToken(String token, LocalDateTime expirationTime) {
+        return PasswordResetToken.builder()
+                .id(1L)
+                .tokenHash(TokenDigest.sha256(token))
+                .expirationTime(expirationTime)
+                .user(user)
+                .build();
+    }
+}
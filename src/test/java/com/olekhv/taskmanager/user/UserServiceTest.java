@@ -26,12 +26,16 @@ class UserServiceTest {
     @MockBean
     private PasswordEncoder passwordEncoder;
 
+    @MockBean
+    private UserPrincipalCache userPrincipalCache;
+
     private User user;
     private User admin;
 
     @BeforeEach
     void setUp() {
         user = User.builder()
+                .id(1L)
                 .firstName("Test")
                 .lastName("User")
                 .email("testUser@gmail.com")
@@ -39,6 +43,7 @@ class UserServiceTest {
                 .build();
 
         admin = User.builder()
+                .id(2L)
                 .firstName("Test")
                 .lastName("Admin")
                 .email("testAdmin@gmail.com")
@@ -47,27 +52,30 @@ class UserServiceTest {
 
         when(userRepository.findByEmail("testUser@gmail.com")).thenReturn(Optional.of(user));
         when(userRepository.findByEmail("testAdmin@gmail.com")).thenReturn(Optional.of(admin));
+        when(userRepository.findById(1L)).thenReturn(Optional.of(user));
     }
 
     @Test
     void should_change_role_of_user_if_admin_account() {
-        userService.changeUserRole(Role.SUPPORT, user.getEmail(), admin.getEmail());
+        userService.changeUserRole(Role.SUPPORT, user.getEmail(), UserPrincipal.from(admin));
 
         verify(userRepository, times(1)).save(user);
+        verify(userRepository, never()).findByEmail(admin.getEmail());
 
         assertEquals(Role.SUPPORT, user.getRole());
+        verify(userPrincipalCache, times(1)).invalidate(user.getEmail());
     }
 
     @Test
     void should_throw_exception_if_account_that_change_role_is_not_admin() {
         assertThrows(NoPermissionException.class, () ->
-                userService.changeUserRole(Role.SUPPORT, user.getEmail(), user.getEmail())
+                userService.changeUserRole(Role.SUPPORT, user.getEmail(), UserPrincipal.from(user))
         );
     }
 
     @Test
     void should_change_user_information() {
-        userService.editUserInformation("Edited", "User", user.getEmail());
+        userService.editUserInformation("Edited", "User", UserPrincipal.from(user));
 
         verify(userRepository, times(1)).save(user);
 
@@ -85,7 +93,7 @@ class UserServiceTest {
         userService.changeUserPassword("oldPassword",
                 newPassword,
                 newPassword,
-                user.getEmail()
+                UserPrincipal.from(user)
         );
 
         verify(userRepository, times(1)).save(user);
@@ -101,7 +109,7 @@ class UserServiceTest {
                 userService.changeUserPassword("oldPassword",
                         "12345",
                         "12345",
-                        user.getEmail()
+                        UserPrincipal.from(user)
                 )
         );
     }
@@ -113,7 +121,7 @@ class UserServiceTest {
                         "oldPassword",
                         "newPassword",
                         "editedNewPassword",
-                        user.getEmail()
+                        UserPrincipal.from(user)
                 )
         );
     }